@@ -85,6 +85,7 @@ export const communityAPI = {
   update: (id, communityData) => api.put(`/communities/${id}`, communityData),
   delete: (id) => api.delete(`/communities/${id}`),
   search: (query, page = 0, size = 20) => api.get(`/communities/search?query=${query}&page=${page}&size=${size}`),
+  autocomplete: (prefix, limit = 10) => api.get(`/communities/autocomplete?prefix=${encodeURIComponent(prefix)}&limit=${limit}`),
   getPopular: (page = 0, size = 20) => api.get(`/communities/popular?page=${page}&size=${size}`),
   getMembers: (id, page = 0, size = 20) => api.get(`/communities/${id}/members?page=${page}&size=${size}`),
   getMembersByName: (name, page = 0, size = 20) => api.get(`/communities/name/${name}/members?page=${page}&size=${size}`),
@@ -122,6 +123,7 @@ export const postAPI = {
 // Comment API
 export const commentAPI = {
   getByPost: (postId, page = 0, size = 20) => api.get(`/comments/post/${postId}?page=${page}&size=${size}`),
+  getMoreReplies: (token) => api.get(`/comments/more?token=${encodeURIComponent(token)}`),
   getReplies: (commentId, page = 0, size = 20) => api.get(`/comments/${commentId}/replies?page=${page}&size=${size}`),
   create: (commentData) => api.post('/comments', commentData),
   update: (id, commentData) => api.put(`/comments/${id}`, commentData),
@@ -135,7 +137,8 @@ export const voteAPI = {
   removePostVote: (userId, postId) => api.delete(`/votes/post/${userId}/${postId}`),
   removeCommentVote: (userId, commentId) => api.delete(`/votes/comment/${userId}/${commentId}`),
   getUserPostVote: (postId, userId) => api.get(`/votes/post/${postId}/user/${userId}`),
-  getUserCommentVote: (commentId, userId) => api.get(`/votes/comment/${commentId}/user/${userId}`)
+  getUserCommentVote: (commentId, userId) => api.get(`/votes/comment/${commentId}/user/${userId}`),
+  getUserVotes: (userId, postIds = [], commentIds = []) => api.post('/votes/batch', { userId, postIds, commentIds })
 };
 
 // Utility functions
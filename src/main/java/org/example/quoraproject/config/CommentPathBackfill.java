@@ -0,0 +1,60 @@
+package org.example.quoraproject.config;
+
+import org.example.quoraproject.utils.CommentPath;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Fills comments.path/depth for comments created before materialized paths existed.
+// Works top-down in batches: roots first, then any comment whose parent already has a path.
+// Runs once every singleton (the schema included) exists but before the web server starts, so no
+// request can reply to, delete or export a comment that has no path yet.
+@Component
+public class CommentPathBackfill implements SmartInitializingSingleton {
+
+    private static final int BATCH_SIZE = 5000;
+
+    private static final String ROOTS_SQL = "SELECT id, NULL, -1 FROM comments " +
+            "WHERE path IS NULL AND parent_comment_id IS NULL LIMIT " + BATCH_SIZE;
+
+    private static final String CHILDREN_SQL = "SELECT c.id, p.path, p.depth FROM comments c " +
+            "JOIN comments p ON c.parent_comment_id = p.id " +
+            "WHERE c.path IS NULL AND p.path IS NOT NULL LIMIT " + BATCH_SIZE;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    public void backfill() {
+        int total = 0;
+        int updated;
+        do {
+            updated = backfillBatch(ROOTS_SQL) + backfillBatch(CHILDREN_SQL);
+            total += updated;
+        } while (updated > 0);
+
+        if (total > 0) {
+            System.out.println("CommentPathBackfill: assigned paths to " + total + " comments");
+        }
+    }
+
+    private int backfillBatch(String selectSql) {
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query(selectSql, rs -> {
+            long id = rs.getLong(1);
+            updates.add(new Object[]{CommentPath.of(rs.getString(2), id), rs.getInt(3) + 1, id});
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE comments SET path = ?, depth = ? WHERE id = ?", updates);
+        }
+        return updates.size();
+    }
+}
@@ -2,9 +2,12 @@ package org.example.quoraproject.controllers;
 
 import org.example.quoraproject.dtos.AuthResponse;
 import org.example.quoraproject.dtos.LoginRequest;
+import org.example.quoraproject.dtos.PrincipalCacheStats;
 import org.example.quoraproject.dtos.RegisterRequest;
 import org.example.quoraproject.models.User;
+import org.example.quoraproject.security.JwtPrincipal;
 import org.example.quoraproject.security.JwtUtil;
+import org.example.quoraproject.security.UserPrincipalCache;
 import org.example.quoraproject.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -29,6 +32,9 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
         try {
@@ -89,9 +95,23 @@ public class AuthController {
     @GetMapping("/me")
     public ResponseEntity<User> getCurrentUser(Authentication authentication) {
         if (authentication != null && authentication.isAuthenticated()) {
-            User user = (User) authentication.getPrincipal();
-            return ResponseEntity.ok(user);
+            // Stateless tokens only carry the id; this endpoint needs the full user, so it is loaded here.
+            // A username that now belongs to another account means the token's user was renamed.
+            if (authentication.getPrincipal() instanceof JwtPrincipal principal) {
+                return userPrincipalCache.get(principal.username())
+                        .filter(user -> user.getId().equals(principal.userId()))
+                        .map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+            }
+            if (authentication.getPrincipal() instanceof User user) {
+                return ResponseEntity.ok(user);
+            }
         }
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/principal-cache/stats")
+    public PrincipalCacheStats getPrincipalCacheStats() {
+        return userPrincipalCache.getStats();
+    }
+}
@@ -1,13 +1,24 @@
 package org.example.quoraproject.controllers;
 
 
+import org.example.quoraproject.dtos.CommentCacheStats;
 import org.example.quoraproject.dtos.CommentDTO;
+import org.example.quoraproject.dtos.CommentTreeDTO;
+import org.example.quoraproject.dtos.CursorPage;
 import org.example.quoraproject.models.Comment;
 import org.example.quoraproject.services.CommentService;
+import org.example.quoraproject.services.CommentTreeCache;
+import org.example.quoraproject.services.StreamingExportService;
+import org.example.quoraproject.services.VotingService;
+import org.example.quoraproject.utils.CommentSort;
+import org.example.quoraproject.utils.StreamFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.example.quoraproject.security.JwtUtil;
 
 
@@ -25,10 +36,92 @@ public class CommentController {
     private CommentService commentService;
     @Autowired
     private JwtUtil jwtUtil;
+    @Autowired
+    private VotingService votingService;
+    @Autowired
+    private CommentTreeCache commentTreeCache;
+    @Autowired
+    private StreamingExportService streamingExportService;
 
+    // sort is one of best, top, new, controversial and applies at every level of the tree.
+    // maxDepth counts reply levels below each top-level comment, maxChildren caps replies shown per comment;
+    // both are clamped server-side. Cut branches carry a moreRepliesToken for /more.
     @GetMapping("/post/{postId}")
-    public List<Comment> getCommentsByPostId(@PathVariable Long postId, @RequestParam int page, @RequestParam int size) {
-        return commentService.getCommentsByPostId(postId, page, size);
+    public ResponseEntity<?> getCommentsByPostId(@PathVariable Long postId, @RequestParam int page, @RequestParam int size,
+                                                 @RequestParam(defaultValue = "best") String sort,
+                                                 @RequestParam(defaultValue = "5") int maxDepth,
+                                                 @RequestParam(defaultValue = "10") int maxChildren,
+                                                 @RequestParam(required = false) Long userId,
+                                                 WebRequest request) {
+        try {
+            CommentSort commentSort = CommentSort.from(sort);
+            // Read before the tree, so a write landing in between can only make the next request miss
+            String eTag = commentService.getCommentsETag(postId, userId);
+            if (request.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            // Anonymous trees are identical for every reader and come pre-serialized from the cache
+            if (userId == null) {
+                byte[] json = commentService.getCommentsJsonByPostId(postId, commentSort, page, size,
+                        maxDepth, maxChildren);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(eTag)
+                        .contentType(MediaType.APPLICATION_JSON).body(json);
+            }
+            List<CommentTreeDTO> comments = commentService.getCommentsByPostId(postId, commentSort, page, size,
+                    maxDepth, maxChildren);
+            votingService.attachCommentVotes(comments, userId);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(eTag).body(comments);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Every comment of the post as flat rows in thread order, streamed without the tree limits above
+    @GetMapping("/post/{postId}/export")
+    public ResponseEntity<?> exportCommentsByPostId(@PathVariable Long postId,
+                                                    @RequestParam(defaultValue = "json") String format) {
+        try {
+            StreamFormat streamFormat = StreamFormat.from(format);
+            return ResponseEntity.ok().contentType(streamFormat.getMediaType())
+                    .body(streamingExportService.streamComments(postId, streamFormat));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/more")
+    public ResponseEntity<?> getMoreReplies(@RequestParam String token,
+                                            @RequestParam(defaultValue = "5") int maxDepth,
+                                            @RequestParam(defaultValue = "10") int maxChildren,
+                                            @RequestParam(required = false) Long userId) {
+        try {
+            CursorPage<CommentTreeDTO> replies = commentService.getMoreReplies(token, maxDepth, maxChildren);
+            votingService.attachCommentVotes(replies.getContent(), userId);
+            return ResponseEntity.ok(replies);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{commentId}/thread")
+    public ResponseEntity<?> getCommentThread(@PathVariable Long commentId,
+                                              @RequestParam(defaultValue = "best") String sort,
+                                              @RequestParam(defaultValue = "5") int maxDepth,
+                                              @RequestParam(defaultValue = "10") int maxChildren,
+                                              @RequestParam(required = false) Long userId) {
+        try {
+            Optional<CommentTreeDTO> thread = commentService.getCommentThread(commentId, CommentSort.from(sort),
+                    maxDepth, maxChildren);
+            thread.ifPresent(root -> votingService.attachCommentVotes(List.of(root), userId));
+            return thread.<ResponseEntity<?>>map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/cache/stats")
+    public CommentCacheStats getCacheStats() {
+        return commentTreeCache.getStats();
     }
 
     @GetMapping("/{commentId}/replies")
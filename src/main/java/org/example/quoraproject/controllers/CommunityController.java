@@ -1,7 +1,9 @@
 package org.example.quoraproject.controllers;
 
+import org.example.quoraproject.dtos.BulkDeleteStatus;
 import org.example.quoraproject.dtos.CommunityDTO;
 import org.example.quoraproject.dtos.CommunityResponseDTO;
+import org.example.quoraproject.dtos.CommunitySuggestionDTO;
 import org.example.quoraproject.dtos.UserResponseDTO;
 import org.example.quoraproject.models.Community;
 import org.example.quoraproject.models.User;
@@ -9,8 +11,12 @@ import org.example.quoraproject.services.CommunityService;
 import org.example.quoraproject.utils.DTOMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -39,10 +45,19 @@ public class CommunityController {
         return DTOMapper.toCommunityResponseDTOPage(communities);
     }
     
+    // Conditional GET, see PostController.getPostById
     @GetMapping("/{id}")
-    public ResponseEntity<CommunityResponseDTO> getCommunityById(@PathVariable Long id) {
+    public ResponseEntity<CommunityResponseDTO> getCommunityById(@PathVariable Long id, WebRequest request) {
+        Optional<String> eTag = communityService.getCommunityETag(id);
+        if (eTag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(eTag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+        }
         Optional<Community> community = communityService.getCommunityById(id);
-        return community.map(c -> ResponseEntity.ok(DTOMapper.toCommunityResponseDTO(c)))
+        return community.map(c -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(eTag.get())
+                        .body(DTOMapper.toCommunityResponseDTO(c)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
@@ -94,12 +109,21 @@ public class CommunityController {
         }
     }
     
+    // Lightweight type-ahead for the community picker: answered from memory, no database access
+    @GetMapping("/autocomplete")
+    public List<CommunitySuggestionDTO> autocompleteCommunities(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return communityService.autocompleteCommunities(prefix, limit);
+    }
+    
     @GetMapping("/search")
-    public Page<Community> searchCommunities(
+    public ResponseEntity<byte[]> searchCommunities(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        return communityService.searchCommunities(query, page, size);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(communityService.searchCommunitiesJson(query, page, size));
     }
     
     @GetMapping("/{id}/members")
@@ -128,9 +152,18 @@ public class CommunityController {
         }
     }
 
+    // Deletion runs in the background; poll /{id}/delete-status for progress
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteCommunity(@PathVariable Long id) {
-        communityService.deleteCommunity(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<BulkDeleteStatus> deleteCommunity(@PathVariable Long id) {
+        if (communityService.getCommunityById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().body(communityService.deleteCommunity(id));
+    }
+    
+    @GetMapping("/{id}/delete-status")
+    public ResponseEntity<BulkDeleteStatus> getDeleteStatus(@PathVariable Long id) {
+        BulkDeleteStatus status = communityService.getDeleteStatus(id);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
     }
 }
\ No newline at end of file
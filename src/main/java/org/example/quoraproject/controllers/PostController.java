@@ -1,13 +1,21 @@
 package org.example.quoraproject.controllers;
 
+import org.example.quoraproject.dtos.CursorPage;
 import org.example.quoraproject.dtos.PostDTO;
+import org.example.quoraproject.dtos.PostSummaryDTO;
 import org.example.quoraproject.models.Post;
 import org.example.quoraproject.services.PostService;
 import org.example.quoraproject.services.FileUploadService;
+import org.example.quoraproject.services.VotingService;
+import org.example.quoraproject.utils.PostSort;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.security.core.Authentication;
 
@@ -25,54 +33,141 @@ public class PostController {
     @Autowired
     private FileUploadService fileUploadService;
     
+    @Autowired
+    private VotingService votingService;
+    
     @GetMapping
-    public Page<Post> getAllPosts(
+    public Page<PostSummaryDTO> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return postService.getAllPosts(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long userId) {
+        Page<PostSummaryDTO> posts = postService.getAllPosts(page, size);
+        votingService.attachPostVotes(posts.getContent(), userId);
+        return posts;
     }
     
     @GetMapping("/hot")
-    public Page<Post> getHotPosts(
+    public Page<PostSummaryDTO> getHotPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return postService.getHotPosts(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long userId) {
+        Page<PostSummaryDTO> posts = postService.getHotPosts(page, size);
+        votingService.attachPostVotes(posts.getContent(), userId);
+        return posts;
     }
     
     @GetMapping("/top")
-    public Page<Post> getTopPosts(
+    public Page<PostSummaryDTO> getTopPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return postService.getTopPosts(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long userId) {
+        Page<PostSummaryDTO> posts = postService.getTopPosts(page, size);
+        votingService.attachPostVotes(posts.getContent(), userId);
+        return posts;
     }
     
     @GetMapping("/new")
-    public Page<Post> getNewPosts(
+    public Page<PostSummaryDTO> getNewPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return postService.getNewPosts(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long userId) {
+        Page<PostSummaryDTO> posts = postService.getNewPosts(page, size);
+        votingService.attachPostVotes(posts.getContent(), userId);
+        return posts;
     }
     
     @GetMapping("/community/{communityId}")
-    public Page<Post> getPostsByCommunity(
+    public ResponseEntity<?> getPostsByCommunity(
             @PathVariable Long communityId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return postService.getPostsByCommunity(communityId, page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "new") String sort,
+            @RequestParam(required = false) Long userId) {
+        try {
+            Page<PostSummaryDTO> posts = postService.getPostsByCommunity(communityId, page, size, PostSort.from(sort));
+            votingService.attachPostVotes(posts.getContent(), userId);
+            return ResponseEntity.ok(posts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
     
     @GetMapping("/feed/{userId}")
-    public Page<Post> getFeedForUser(
+    public ResponseEntity<?> getFeedForUser(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "new") String sort) {
+        try {
+            Page<PostSummaryDTO> posts = postService.getFeedForUser(userId, page, size, PostSort.from(sort));
+            votingService.attachPostVotes(posts.getContent(), userId);
+            return ResponseEntity.ok(posts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    // Cursor variants of the listings above: pass nextCursor back as cursor, no total count.
+    // /cursor covers the all/hot/top/new listings through the sort parameter.
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getPostsByCursor(
+            @RequestParam(defaultValue = "new") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long userId) {
+        try {
+            CursorPage<PostSummaryDTO> posts = postService.getPostsByCursor(PostSort.from(sort), cursor, size);
+            votingService.attachPostVotes(posts.getContent(), userId);
+            return ResponseEntity.ok(posts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/community/{communityId}/cursor")
+    public ResponseEntity<?> getPostsByCommunityCursor(
+            @PathVariable Long communityId,
+            @RequestParam(defaultValue = "new") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long userId) {
+        try {
+            CursorPage<PostSummaryDTO> posts = postService.getPostsByCommunityCursor(communityId, PostSort.from(sort), cursor, size);
+            votingService.attachPostVotes(posts.getContent(), userId);
+            return ResponseEntity.ok(posts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/feed/{userId}/cursor")
+    public ResponseEntity<?> getFeedForUserCursor(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "new") String sort,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size) {
-        return postService.getFeedForUser(userId, page, size);
+        try {
+            CursorPage<PostSummaryDTO> posts = postService.getFeedForUserCursor(userId, PostSort.from(sort), cursor, size);
+            votingService.attachPostVotes(posts.getContent(), userId);
+            return ResponseEntity.ok(posts);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
     
+    // Conditional GET: a matching If-None-Match is answered 304 from the version row alone
     @GetMapping("/{id}")
-    public ResponseEntity<Post> getPostById(@PathVariable Long id) {
+    public ResponseEntity<Post> getPostById(@PathVariable Long id, WebRequest request) {
+        Optional<String> eTag = postService.getPostETag(id);
+        if (eTag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(eTag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+        }
         Optional<Post> post = postService.getPostById(id);
-        return post.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        return post.map(p -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(eTag.get()).body(p))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @PostMapping
@@ -100,11 +195,12 @@ public class PostController {
     }
     
     @GetMapping("/search")
-    public Page<Post> searchPosts(
+    public ResponseEntity<byte[]> searchPosts(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        return postService.searchPosts(query, page, size);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(postService.searchPostsJson(query, page, size));
     }
     
     @PostMapping("/upload-image")
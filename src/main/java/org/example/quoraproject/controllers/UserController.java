@@ -2,12 +2,13 @@ package org.example.quoraproject.controllers;
 
 import org.example.quoraproject.dtos.UserDTO;
 import org.example.quoraproject.models.User;
+import org.example.quoraproject.services.StreamingExportService;
 import org.example.quoraproject.services.UserService;
+import org.example.quoraproject.utils.StreamFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -16,10 +17,19 @@ import java.util.Optional;
 public class UserController {
     @Autowired
     private UserService userService;
+    @Autowired
+    private StreamingExportService streamingExportService;
 
+    // Streamed in id order; format=ndjson writes one user per line
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<?> getAllUsers(@RequestParam(defaultValue = "json") String format) {
+        try {
+            StreamFormat streamFormat = StreamFormat.from(format);
+            return ResponseEntity.ok().contentType(streamFormat.getMediaType())
+                    .body(streamingExportService.streamUsers(streamFormat));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
@@ -1,8 +1,12 @@
 package org.example.quoraproject.controllers;
 
+import org.example.quoraproject.dtos.VoteBatchRequest;
+import org.example.quoraproject.dtos.VoteBatchResponse;
 import org.example.quoraproject.dtos.VoteDTO;
+import org.example.quoraproject.dtos.VoteReconciliationStatus;
 import org.example.quoraproject.models.Comment;
 import org.example.quoraproject.models.Post;
+import org.example.quoraproject.services.VoteReconciliationService;
 import org.example.quoraproject.services.VotingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +20,9 @@ public class VotingController {
     @Autowired
     private VotingService votingService;
     
+    @Autowired
+    private VoteReconciliationService voteReconciliationService;
+    
     @PostMapping("/post")
     public ResponseEntity<?> voteOnPost(@RequestBody VoteDTO voteDTO) {
         try {
@@ -99,6 +106,24 @@ public class VotingController {
         }
     }
 
+    // Vote state for a whole page of posts and/or a comment tree: one IN query per table
+    @PostMapping("/batch")
+    public ResponseEntity<?> getUserVotes(@RequestBody VoteBatchRequest request) {
+        if (request.getUserId() == null) {
+            return ResponseEntity.badRequest().body("User ID is required");
+        }
+        // Each list becomes one IN (...) query, so its length is bounded
+        if (request.getPostIds() != null && request.getPostIds().size() > VoteBatchRequest.MAX_POST_IDS) {
+            return ResponseEntity.badRequest().body("At most " + VoteBatchRequest.MAX_POST_IDS + " post IDs per request");
+        }
+        if (request.getCommentIds() != null && request.getCommentIds().size() > VoteBatchRequest.MAX_COMMENT_IDS) {
+            return ResponseEntity.badRequest().body("At most " + VoteBatchRequest.MAX_COMMENT_IDS + " comment IDs per request");
+        }
+        return ResponseEntity.ok(new VoteBatchResponse(
+                votingService.getUserPostVotes(request.getUserId(), request.getPostIds()),
+                votingService.getUserCommentVotes(request.getUserId(), request.getCommentIds())));
+    }
+
     @DeleteMapping("/comment/{userId}/{commentId}")
     public ResponseEntity<?> removeCommentVote(@PathVariable Long userId, @PathVariable Long commentId) {
         try {
@@ -112,17 +137,34 @@ public class VotingController {
         }
     }
     
+    // Starts (or returns the running) background reconciliation of vote counters and karma
     @PostMapping("/refresh-counts")
     public ResponseEntity<?> refreshVoteCounts() {
         try {
-            votingService.refreshAllVoteCounts();
-            return ResponseEntity.ok("Vote counts refreshed successfully");
+            return ResponseEntity.accepted().body(voteReconciliationService.start());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body("Failed to refresh vote counts: " + e.getMessage());
         }
     }
     
+    @GetMapping("/refresh-counts/status")
+    public ResponseEntity<?> getRefreshStatus() {
+        VoteReconciliationStatus status = voteReconciliationService.getStatus();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+    
+    @PostMapping("/refresh-karma")
+    public ResponseEntity<?> refreshKarma() {
+        try {
+            int updated = votingService.recomputeAllKarma();
+            return ResponseEntity.ok("Karma recomputed for " + updated + " users");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body("Failed to recompute karma: " + e.getMessage());
+        }
+    }
+    
     // Inner class for vote status response
     public static class VoteStatusResponse {
         private String voteType;
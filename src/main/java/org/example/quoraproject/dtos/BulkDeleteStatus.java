@@ -0,0 +1,45 @@
+package org.example.quoraproject.dtos;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of a background community delete, updated by the delete worker as batches commit
+@Getter
+public class BulkDeleteStatus {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private volatile State state = State.RUNNING;
+    private final Long communityId;
+    private final long totalPosts;
+    private final AtomicLong postsDeleted = new AtomicLong();
+    private final AtomicLong commentsDeleted = new AtomicLong();
+    private final AtomicLong votesDeleted = new AtomicLong();
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public BulkDeleteStatus(Long communityId, long totalPosts) {
+        this.communityId = communityId;
+        this.totalPosts = totalPosts;
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        state = State.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.quoraproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Snapshot of the serialized comment tree cache counters
+@Data
+@AllArgsConstructor
+public class CommentCacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private int entries;
+    private long bytes;
+    private long maxBytes;
+}
@@ -0,0 +1,23 @@
+package org.example.quoraproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Flat comment row for exports; rows arrive in thread order, so parentCommentId always refers to an earlier row
+@Data
+@AllArgsConstructor
+public class CommentExportDTO {
+    private Long id;
+    private String content;
+    private Long postId;
+    private Long parentCommentId;
+    private CommentTreeDTO.UserSummary user;
+    private int upvotes;
+    private int downvotes;
+    private int score;
+    private int depth;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,68 @@
+package org.example.quoraproject.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read model for comment threads, filled straight from a JPQL constructor expression
+@Data
+@NoArgsConstructor
+public class CommentTreeDTO {
+    private Long id;
+    private String content;
+    private Long postId;
+    private Long parentCommentId;
+    private UserSummary user;
+    private int upvotes;
+    private int downvotes;
+    private int score;
+    private int depth;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String myVote;
+
+    // Set when replies were cut by the depth or children limit; resume with /api/v1/comments/more
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String moreRepliesToken;
+
+    private List<CommentTreeDTO> replies = new ArrayList<>();
+
+    // Filled by the reply queries only: whether replies exist below (null when not loaded) and the
+    // ranking key the node was ordered by, which continuation tokens resume after
+    @JsonIgnore
+    private Boolean hasReplies;
+
+    @JsonIgnore
+    private Number sortKey;
+
+    public CommentTreeDTO(Long id, String content, Long postId, Long parentCommentId, Long userId, String username,
+                          int upvotes, int downvotes, int score, int depth,
+                          LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.content = content;
+        this.postId = postId;
+        this.parentCommentId = parentCommentId;
+        this.user = userId != null ? new UserSummary(userId, username) : null;
+        this.upvotes = upvotes;
+        this.downvotes = downvotes;
+        this.score = score;
+        this.depth = depth;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class UserSummary {
+        private Long id;
+        private String username;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.quoraproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Autocomplete entry: just enough to render the community picker
+@Data
+@AllArgsConstructor
+public class CommunitySuggestionDTO {
+    private Long id;
+    private String name;
+    private String displayName;
+    private int memberCount;
+}
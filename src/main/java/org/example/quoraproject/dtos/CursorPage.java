@@ -0,0 +1,15 @@
+package org.example.quoraproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Keyset page: no total count, pass nextCursor back to continue from the last item
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+}
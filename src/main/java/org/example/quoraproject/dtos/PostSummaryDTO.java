@@ -0,0 +1,73 @@
+package org.example.quoraproject.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.quoraproject.models.Post;
+
+import java.time.LocalDateTime;
+
+// Read model for post listings, filled from one JPQL constructor expression joining author and community.
+// Keeps the JSON shape of the Post entity for the fields listings show.
+@Data
+@NoArgsConstructor
+public class PostSummaryDTO {
+    private Long id;
+    private String title;
+    private String content;
+    private String url;
+    private String imageUrl;
+    private Post.PostType type;
+    private UserSummary user;
+    private CommunitySummary community;
+    private int upvotes;
+    private int downvotes;
+    private int score;
+    private int commentCount;
+    private double hotScore;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String myVote;
+
+    public PostSummaryDTO(Long id, String title, String content, String url, String imageUrl, Post.PostType type,
+                          Long userId, String username,
+                          Long communityId, String communityName, String communityDisplayName,
+                          String communityProfileImageUrl,
+                          int upvotes, int downvotes, int score, int commentCount, double hotScore,
+                          LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.url = url;
+        this.imageUrl = imageUrl;
+        this.type = type;
+        this.user = new UserSummary(userId, username);
+        this.community = new CommunitySummary(communityId, communityName, communityDisplayName, communityProfileImageUrl);
+        this.upvotes = upvotes;
+        this.downvotes = downvotes;
+        this.score = score;
+        this.commentCount = commentCount;
+        this.hotScore = hotScore;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class UserSummary {
+        private Long id;
+        private String username;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CommunitySummary {
+        private Long id;
+        private String name;
+        private String displayName;
+        private String profileImageUrl;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.quoraproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Snapshot of the authenticated-user cache counters
+@Data
+@AllArgsConstructor
+public class PrincipalCacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private int entries;
+    private int activeStates;
+    private double hitRate;
+}
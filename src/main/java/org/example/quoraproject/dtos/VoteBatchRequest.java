@@ -0,0 +1,16 @@
+package org.example.quoraproject.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class VoteBatchRequest {
+    // One page of posts, and one full comment tree response (comments.tree.max-nodes)
+    public static final int MAX_POST_IDS = 100;
+    public static final int MAX_COMMENT_IDS = 500;
+
+    private Long userId;
+    private List<Long> postIds;
+    private List<Long> commentIds;
+}
@@ -0,0 +1,14 @@
+package org.example.quoraproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+// Only ids the user has voted on appear; missing ids mean no vote
+@Data
+@AllArgsConstructor
+public class VoteBatchResponse {
+    private Map<Long, String> postVotes;
+    private Map<Long, String> commentVotes;
+}
@@ -0,0 +1,50 @@
+package org.example.quoraproject.dtos;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of a vote counter reconciliation run, updated concurrently by the chunk workers
+@Getter
+public class VoteReconciliationStatus {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private volatile State state = State.RUNNING;
+    private final int totalChunks;
+    private final AtomicInteger completedChunks = new AtomicInteger();
+    private final AtomicLong rowsScanned = new AtomicLong();
+    private final AtomicLong rowsCorrected = new AtomicLong();
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public VoteReconciliationStatus(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public void chunkCompleted(int scanned, int corrected) {
+        rowsScanned.addAndGet(scanned);
+        rowsCorrected.addAndGet(corrected);
+        completedChunks.incrementAndGet();
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        state = State.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+}
@@ -1,42 +1,82 @@
 package org.example.quoraproject.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.example.quoraproject.utils.CommentPath;
 
 import java.util.Set;
 
 @Data
 @EqualsAndHashCode(callSuper=false)
 @Entity
-@Table(name = "comments")
+@NamedEntityGraph(name = "Comment.withAuthor", attributeNodes = @NamedAttributeNode("user"))
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_path", columnList = "path"),
+        @Index(name = "idx_comments_post_path", columnList = "post_id, path"),
+        @Index(name = "idx_comments_post_updated_at", columnList = "post_id, updated_at"),
+        @Index(name = "idx_comments_post_best", columnList = "post_id, parent_comment_id, best_score, id"),
+        @Index(name = "idx_comments_post_top", columnList = "post_id, parent_comment_id, score, id"),
+        @Index(name = "idx_comments_post_new", columnList = "post_id, parent_comment_id, id"),
+        @Index(name = "idx_comments_post_controversy", columnList = "post_id, parent_comment_id, controversy, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Comment extends BaseModel{
     private String content;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
+    // Post and parent are serialized as ids (getPostId/getParentCommentId), the same shape as CommentTreeDTO
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id")
-    @JsonIgnoreProperties({"comments", "votes"})
+    @JsonIgnore
     private Post post;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_comment_id")
-    @JsonIgnoreProperties({"replies", "parentComment", "post"})
+    @JsonIgnore
     private Comment parentComment;
 
     @OneToMany(mappedBy = "parentComment", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
-    @JsonIgnoreProperties({"parentComment", "post"})
+    @JsonIgnore
     private Set<Comment> replies;
 
     @OneToMany(mappedBy = "comment", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
     private Set<CommentVote> votes;
     
     private int upvotes = 0;
     private int downvotes = 0;
     private int score = 0; // upvotes - downvotes
+    
+    // Ranking keys for the best/controversial sorts, refreshed from the counters on every vote (see CommentRanking)
+    @JsonIgnore
+    @Column(name = "best_score")
+    private double bestScore = 0;
+    
+    @JsonIgnore
+    private double controversy = 0;
+    
+    // Materialized path (see CommentPath) and nesting level, set by CommentService.createComment
+    @JsonIgnore
+    @Column(length = CommentPath.MAX_LENGTH)
+    private String path;
+    
+    private int depth = 0;
+
+    // A lazy proxy hands out its id without being initialized, so neither getter issues a query
+    @JsonProperty("postId")
+    public Long getPostId() {
+        return post != null ? post.getId() : null;
+    }
+
+    @JsonProperty("parentCommentId")
+    public Long getParentCommentId() {
+        return parentComment != null ? parentComment.getId() : null;
+    }
 }
@@ -11,6 +11,7 @@ import java.util.Set;
 @Data
 @EqualsAndHashCode(callSuper=false, onlyExplicitlyIncluded = true)
 @Entity
+@NamedEntityGraph(name = "Community.withCreator", attributeNodes = @NamedAttributeNode("creator"))
 @Table(name = "communities")
 public class Community extends BaseModel {
     @Column(unique = true, nullable = false)
@@ -40,4 +41,10 @@ public class Community extends BaseModel {
     private Set<Post> posts;
     
     private int memberCount = 0;
+    
+    // Set once every member's timeline holds this community's posts (FeedService.syncMaterializedCommunities);
+    // until then, and while the community is above the fan-out size, feeds read its posts directly
+    @JsonIgnore
+    @Column(name = "feed_materialized")
+    private boolean feedMaterialized = false;
 }
\ No newline at end of file
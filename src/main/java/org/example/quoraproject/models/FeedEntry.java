@@ -0,0 +1,32 @@
+package org.example.quoraproject.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+// One row of a user's materialized home feed, written when a post is created (fan-out on write).
+// Plain id columns keep the fan-out a single INSERT ... SELECT with no entity loading.
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Entity
+@Table(name = "feed_entries",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "post_id"}),
+        indexes = {
+                @Index(name = "idx_feed_entries_user_created_at", columnList = "user_id, post_created_at, post_id"),
+                @Index(name = "idx_feed_entries_post", columnList = "post_id")
+        })
+public class FeedEntry extends BaseModel {
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "community_id", nullable = false)
+    private Long communityId;
+
+    @Column(name = "post_created_at", nullable = false)
+    private LocalDateTime postCreatedAt;
+}
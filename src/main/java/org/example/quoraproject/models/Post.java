@@ -1,9 +1,14 @@
 package org.example.quoraproject.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.example.quoraproject.utils.HotScore;
+
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 import org.hibernate.annotations.OnDelete;
@@ -12,7 +17,16 @@ import org.hibernate.annotations.OnDeleteAction;
 @Data
 @EqualsAndHashCode(callSuper = false)
 @Entity
-@Table(name = "posts")
+@NamedEntityGraph(name = "Post.withAuthorAndCommunity",
+        attributeNodes = {@NamedAttributeNode("user"), @NamedAttributeNode("community")})
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_hot_score", columnList = "hot_score, id"),
+        @Index(name = "idx_posts_community_hot_score", columnList = "community_id, hot_score, id"),
+        @Index(name = "idx_posts_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_posts_community_created_at", columnList = "community_id, created_at, id"),
+        @Index(name = "idx_posts_score", columnList = "score, id"),
+        @Index(name = "idx_posts_community_score", columnList = "community_id, score, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Post extends BaseModel {
     @Column(nullable = false)
@@ -35,13 +49,14 @@ public class Post extends BaseModel {
     @JoinColumn(name = "community_id", nullable = false)
     private Community community;
     
+    // Never serialized: comments are served as trees by /api/v1/comments, votes as counters
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
-    @JsonIgnoreProperties("post")
+    @JsonIgnore
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Set<Comment> comments = new HashSet<>();
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
-    @JsonIgnoreProperties("post")
+    @JsonIgnore
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Set<PostVote> votes = new HashSet<>();
     
@@ -50,6 +65,26 @@ public class Post extends BaseModel {
     private int score = 0;
     private int commentCount = 0;
     
+    // Time-decayed ranking for /hot, kept in step with score by the vote update
+    @Column(name = "hot_score")
+    private double hotScore = 0;
+    
+    // Age component of hotScore, fixed when the post is created
+    @JsonIgnore
+    @Column(name = "hot_base")
+    private double hotBase = 0;
+    
+    // Requesting user's vote, filled in by listings when a userId is supplied
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String myVote;
+    
+    @PrePersist
+    void initHotScore() {
+        hotBase = HotScore.ageTerm(getCreatedAt() != null ? getCreatedAt() : LocalDateTime.now());
+        hotScore = HotScore.of(score, hotBase);
+    }
+    
     public enum PostType {
         TEXT, LINK, IMAGE
     }
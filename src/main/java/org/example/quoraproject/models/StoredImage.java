@@ -0,0 +1,28 @@
+package org.example.quoraproject.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+// One stored image file, keyed by the SHA-256 of its bytes. Every upload of the same bytes shares the
+// file; refCount is the number of posts holding its URL, and a file left at zero is swept after a grace
+// period (see FileUploadService).
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Entity
+@Table(name = "stored_images", indexes = {
+        @Index(name = "idx_stored_images_url", columnList = "url")
+})
+public class StoredImage extends BaseModel {
+    @Column(nullable = false, unique = true, length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private String url;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+}
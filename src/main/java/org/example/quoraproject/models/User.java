@@ -15,6 +15,7 @@ import java.util.Set;
 @Data
 @EqualsAndHashCode(callSuper=false, onlyExplicitlyIncluded = true)
 @Entity
+@NamedEntityGraph(name = "User.withJoinedCommunities", attributeNodes = @NamedAttributeNode("joinedCommunities"))
 @Table(name = "users")
 public class User extends BaseModel implements UserDetails {
     @EqualsAndHashCode.Include
@@ -1,23 +1,45 @@
 package org.example.quoraproject.repositories;
 
+import org.example.quoraproject.dtos.CommentTreeDTO;
 import org.example.quoraproject.models.Comment;
+import org.example.quoraproject.utils.CommentRanking;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     Page<Comment> findByPostId(Long postId, Pageable pageable);
     List<Comment> findByPostId(Long postId);
     Page<Comment> findByPostIdAndParentCommentIsNull(Long postId, Pageable pageable);
+    @EntityGraph("Comment.withAuthor")
     Page<Comment> findByParentCommentId(Long parentCommentId, Pageable pageable);
     List<Comment> findByParentCommentId(Long parentCommentId);
     
+    @EntityGraph("Comment.withAuthor")
+    Optional<Comment> findWithAuthorById(Long id);
+    
+    // Tree nodes for the top of a thread; replies are attached level by level by CommentService,
+    // one index-ordered LIMIT per parent
+    @Query("SELECT new org.example.quoraproject.dtos.CommentTreeDTO(c.id, c.content, c.post.id, parent.id, u.id, u.username, " +
+           "c.upvotes, c.downvotes, c.score, c.depth, c.createdAt, c.updatedAt) " +
+           "FROM Comment c LEFT JOIN c.parentComment parent LEFT JOIN c.user u " +
+           "WHERE c.post.id = :postId AND c.parentComment IS NULL")
+    List<CommentTreeDTO> findTopLevelNodes(@Param("postId") Long postId, Pageable pageable);
+    
+    @Query("SELECT new org.example.quoraproject.dtos.CommentTreeDTO(c.id, c.content, c.post.id, parent.id, u.id, u.username, " +
+           "c.upvotes, c.downvotes, c.score, c.depth, c.createdAt, c.updatedAt) " +
+           "FROM Comment c LEFT JOIN c.parentComment parent LEFT JOIN c.user u WHERE c.id = :id")
+    Optional<CommentTreeDTO> findNodeById(@Param("id") Long id);
+    
     // Count methods for better performance
     long countByPostId(Long postId);
     long countByParentCommentId(Long parentCommentId);
@@ -25,4 +47,18 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     // Find all nested comments under a parent (for deletion purposes)
     @Query("SELECT c FROM Comment c WHERE c.parentComment.id = :parentId")
     List<Comment> findAllNestedComments(@Param("parentId") Long parentId);
+    
+    // Apply a vote delta in place so concurrent voters never overwrite each other
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    // updatedAt moves with the counters: it feeds the comment tree ETag (PostRepository.findCommentsVersionById)
+    @Query("UPDATE Comment c SET c.upvotes = c.upvotes + :upvoteDelta, c.downvotes = c.downvotes + :downvoteDelta, " +
+           "c.score = c.score + :upvoteDelta - :downvoteDelta, c.updatedAt = LOCAL DATETIME WHERE c.id = :commentId")
+    int applyVoteDelta(@Param("commentId") Long commentId,
+                       @Param("upvoteDelta") int upvoteDelta,
+                       @Param("downvoteDelta") int downvoteDelta);
+    
+    // Runs after applyVoteDelta in the same transaction, so it reads the counters under that row lock
+    @Modifying(clearAutomatically = true)
+    @Query(value = CommentRanking.REFRESH_SQL + " WHERE id = :commentId", nativeQuery = true)
+    int refreshRankingKeys(@Param("commentId") Long commentId);
 }
\ No newline at end of file
@@ -2,8 +2,12 @@ package org.example.quoraproject.repositories;
 
 import org.example.quoraproject.models.CommentVote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +15,8 @@ public interface CommentVoteRepository extends JpaRepository<CommentVote, Long>
     Optional<CommentVote> findByUserIdAndCommentId(Long userId, Long commentId);
     void deleteByUserIdAndCommentId(Long userId, Long commentId);
     long countByCommentIdAndVoteType(Long commentId, CommentVote.VoteType voteType);
+    
+    // [commentId, voteType] rows for one user across a comment tree, in a single IN query
+    @Query("SELECT cv.comment.id, cv.voteType FROM CommentVote cv WHERE cv.user.id = :userId AND cv.comment.id IN :commentIds")
+    List<Object[]> findVoteTypesByUserIdAndCommentIds(@Param("userId") Long userId, @Param("commentIds") Collection<Long> commentIds);
 }
\ No newline at end of file
@@ -3,18 +3,35 @@ package org.example.quoraproject.repositories;
 import org.example.quoraproject.models.Community;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CommunityRepository extends JpaRepository<Community, Long> {
+    // Response DTOs carry the creator's username, so the listings fetch it in the same query
+    @EntityGraph("Community.withCreator")
     Optional<Community> findByName(String name);
     
-    @Query("SELECT c FROM Community c WHERE c.name LIKE %:query% OR c.displayName LIKE %:query% OR c.description LIKE %:query%")
-    Page<Community> searchCommunities(String query, Pageable pageable);
+    @EntityGraph("Community.withCreator")
+    Optional<Community> findWithCreatorById(Long id);
     
+    @EntityGraph("Community.withCreator")
+    Page<Community> findAll(Pageable pageable);
+    
+    @EntityGraph("Community.withCreator")
     Page<Community> findAllByOrderByMemberCountDesc(Pageable pageable);
+    
+    // Validator for GET /communities/{id}; the creator's row carries the username shown in the response
+    @Query("SELECT c.updatedAt, c.memberCount, cr.updatedAt FROM Community c LEFT JOIN c.creator cr WHERE c.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
+    
+    // [communityId, memberCount, feedMaterialized] for the communities a user joined, without loading entities
+    @Query("SELECT c.id, c.memberCount, c.feedMaterialized FROM User u JOIN u.joinedCommunities c WHERE u.id = :userId")
+    List<Object[]> findJoinedCommunitySizes(@Param("userId") Long userId);
 }
\ No newline at end of file
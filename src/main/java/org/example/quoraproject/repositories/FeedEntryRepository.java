@@ -0,0 +1,30 @@
+package org.example.quoraproject.repositories;
+
+import org.example.quoraproject.dtos.PostSummaryDTO;
+import org.example.quoraproject.models.FeedEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FeedEntryRepository extends JpaRepository<FeedEntry, Long> {
+    // Materialized timeline read, walks idx_feed_entries_user_created_at
+    @Query("SELECT " + PostRepository.POST_SUMMARY + " FROM FeedEntry f JOIN Post p ON p.id = f.postId " +
+           "JOIN p.user u JOIN p.community c WHERE f.userId = :userId " +
+           "AND (f.postCreatedAt < :createdAt OR (f.postCreatedAt = :createdAt AND f.postId < :id)) " +
+           "ORDER BY f.postCreatedAt DESC, f.postId DESC")
+    List<PostSummaryDTO> findFeedAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id, Pageable pageable);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FeedEntry f WHERE f.userId = :userId AND f.communityId = :communityId")
+    void deleteByUserIdAndCommunityId(@Param("userId") Long userId, @Param("communityId") Long communityId);
+}
@@ -1,8 +1,10 @@
 package org.example.quoraproject.repositories;
 
+import org.example.quoraproject.dtos.PostSummaryDTO;
 import org.example.quoraproject.models.Post;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,47 +12,150 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
-    Page<Post> findByCommunityId(Long communityId, Pageable pageable);
+    @EntityGraph("Post.withAuthorAndCommunity")
+    Optional<Post> findWithAuthorAndCommunityById(Long id);
     
-    @Query("SELECT p FROM Post p WHERE p.community.id IN :communityIds ORDER BY p.createdAt DESC")
-    Page<Post> findByJoinedCommunities(@Param("communityIds") List<Long> communityIds, Pageable pageable);
+    // Validator for GET /posts/{id}: every column the response depends on that can change, by primary keys.
+    // Vote and comment counters and karma are updated in bulk without touching updatedAt, so they are listed too
+    @Query("SELECT p.updatedAt, p.upvotes, p.downvotes, p.commentCount, u.updatedAt, u.karma, c.updatedAt, c.memberCount " +
+           "FROM Post p JOIN p.user u JOIN p.community c WHERE p.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
     
-    // Hot posts (high score + recent) - simplified version
-    @Query("SELECT p FROM Post p ORDER BY p.score DESC, p.createdAt DESC")
-    Page<Post> findHotPosts(Pageable pageable);
+    // Validator for the post's comment trees: any comment insert, edit or vote moves the newest updatedAt
+    // (idx_comments_post_updated_at), and deletes move the counter
+    @Query("SELECT p.commentCount, (SELECT MAX(c.updatedAt) FROM Comment c WHERE c.post.id = p.id) " +
+           "FROM Post p WHERE p.id = :id")
+    List<Object[]> findCommentsVersionById(@Param("id") Long id);
+    
+    // Listing select: the summary fields plus author and community through inner joins, one row per post
+    String POST_SUMMARY = "new org.example.quoraproject.dtos.PostSummaryDTO(p.id, p.title, p.content, p.url, " +
+            "p.imageUrl, p.type, u.id, u.username, c.id, c.name, c.displayName, c.profileImageUrl, " +
+            "p.upvotes, p.downvotes, p.score, p.commentCount, p.hotScore, p.createdAt, p.updatedAt)";
+    String SELECT_POST_SUMMARY = "SELECT " + POST_SUMMARY + " FROM Post p JOIN p.user u JOIN p.community c ";
+    
+    @Query(value = SELECT_POST_SUMMARY + "WHERE p.community.id IN :communityIds ORDER BY p.hotScore DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.community.id IN :communityIds")
+    Page<PostSummaryDTO> findHotByJoinedCommunities(@Param("communityIds") List<Long> communityIds, Pageable pageable);
+    
+    @Query(value = SELECT_POST_SUMMARY + "WHERE p.community.id IN :communityIds ORDER BY p.score DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.community.id IN :communityIds")
+    Page<PostSummaryDTO> findTopByJoinedCommunities(@Param("communityIds") List<Long> communityIds, Pageable pageable);
+    
+    // Hot posts by the precomputed time-decayed score (idx_posts_hot_score)
+    @Query(value = SELECT_POST_SUMMARY + "ORDER BY p.hotScore DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostSummaryDTO> findHotPosts(Pageable pageable);
+    
+    @Query(value = SELECT_POST_SUMMARY + "WHERE p.community.id = :communityId ORDER BY p.hotScore DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.community.id = :communityId")
+    Page<PostSummaryDTO> findHotInCommunity(@Param("communityId") Long communityId, Pageable pageable);
+    
+    @Query(value = SELECT_POST_SUMMARY + "WHERE p.community.id = :communityId ORDER BY p.createdAt DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.community.id = :communityId")
+    Page<PostSummaryDTO> findNewInCommunity(@Param("communityId") Long communityId, Pageable pageable);
+    
+    @Query(value = SELECT_POST_SUMMARY + "WHERE p.community.id = :communityId ORDER BY p.score DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.community.id = :communityId")
+    Page<PostSummaryDTO> findTopInCommunity(@Param("communityId") Long communityId, Pageable pageable);
     
     // Top posts by score
-    Page<Post> findAllByOrderByScoreDesc(Pageable pageable);
+    @Query(value = SELECT_POST_SUMMARY + "ORDER BY p.score DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostSummaryDTO> findTopPosts(Pageable pageable);
     
-    @Modifying
-    @Query("DELETE FROM Comment c WHERE c.post.id = :postId")
-    @Transactional
-    void deleteCommentsByPostId(@Param("postId") Long postId);
+    // Search hits, in no particular order
+    @Query(SELECT_POST_SUMMARY + "WHERE p.id IN :ids")
+    List<PostSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
     
-    @Modifying
-    @Query("DELETE FROM PostVote pv WHERE pv.post.id = :postId")
-    @Transactional
-    void deleteVotesByPostId(@Param("postId") Long postId);
+    // Apply a vote delta in place so concurrent voters never overwrite each other.
+    // hotScore is assigned first so it sees the old score under both standard and MySQL
+    // left-to-right SET semantics; the formula mirrors HotScore.of
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET " +
+           "p.hotScore = p.hotBase + sign(p.score + :upvoteDelta - :downvoteDelta) * " +
+           "log10(greatest(abs(p.score + :upvoteDelta - :downvoteDelta), 1)), " +
+           "p.upvotes = p.upvotes + :upvoteDelta, p.downvotes = p.downvotes + :downvoteDelta, " +
+           "p.score = p.score + :upvoteDelta - :downvoteDelta WHERE p.id = :postId")
+    int applyVoteDelta(@Param("postId") Long postId,
+                       @Param("upvoteDelta") int upvoteDelta,
+                       @Param("downvoteDelta") int downvoteDelta);
     
-    @Modifying
-    @Query("DELETE FROM Post p WHERE p.id = :postId")
-    @Transactional
-    void deletePostById(@Param("postId") Long postId);
+    // Comment counter maintained in place: +1 per new comment, minus the subtree size on delete
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Post p SET p.commentCount = p.commentCount + :delta WHERE p.id = :postId")
+    int adjustCommentCount(@Param("postId") Long postId, @Param("delta") int delta);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Post p SET p.commentCount = (SELECT COUNT(c) FROM Comment c WHERE c.post.id = p.id) " +
+           "WHERE p.id = :postId")
+    int recountComments(@Param("postId") Long postId);
     
+    // Repairs every drifted counter with one grouped aggregate; rows already correct are not rewritten
+    @Modifying
     @Transactional
-    default void deletePostAndRelations(Long postId) {
-        deleteCommentsByPostId(postId);
-        deleteVotesByPostId(postId);
-        deletePostById(postId);
-    }
+    @Query("UPDATE Post p SET p.commentCount = (SELECT COUNT(c) FROM Comment c WHERE c.post.id = p.id) " +
+           "WHERE p.commentCount <> (SELECT COUNT(c2) FROM Comment c2 WHERE c2.post.id = p.id)")
+    int recountAllComments();
     
     // New posts
-    Page<Post> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    @Query(value = SELECT_POST_SUMMARY + "ORDER BY p.createdAt DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostSummaryDTO> findNewPosts(Pageable pageable);
+    
+    // Keyset (cursor) listings: List results skip the COUNT query and the (key, id) predicate
+    // replaces OFFSET, so every page is an index range scan of the same cost as the first
+    @Query(SELECT_POST_SUMMARY + "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummaryDTO> findNewAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query(SELECT_POST_SUMMARY + "WHERE p.hotScore < :hotScore OR (p.hotScore = :hotScore AND p.id < :id) " +
+           "ORDER BY p.hotScore DESC, p.id DESC")
+    List<PostSummaryDTO> findHotAfter(@Param("hotScore") double hotScore, @Param("id") Long id, Pageable pageable);
+    
+    @Query(SELECT_POST_SUMMARY + "WHERE p.score < :score OR (p.score = :score AND p.id < :id) " +
+           "ORDER BY p.score DESC, p.id DESC")
+    List<PostSummaryDTO> findTopAfter(@Param("score") int score, @Param("id") Long id, Pageable pageable);
+    
+    @Query(SELECT_POST_SUMMARY + "WHERE p.community.id = :communityId " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummaryDTO> findNewInCommunityAfter(@Param("communityId") Long communityId, @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id, Pageable pageable);
+    
+    @Query(SELECT_POST_SUMMARY + "WHERE p.community.id = :communityId " +
+           "AND (p.hotScore < :hotScore OR (p.hotScore = :hotScore AND p.id < :id)) " +
+           "ORDER BY p.hotScore DESC, p.id DESC")
+    List<PostSummaryDTO> findHotInCommunityAfter(@Param("communityId") Long communityId, @Param("hotScore") double hotScore,
+                                                 @Param("id") Long id, Pageable pageable);
+    
+    @Query(SELECT_POST_SUMMARY + "WHERE p.community.id = :communityId " +
+           "AND (p.score < :score OR (p.score = :score AND p.id < :id)) " +
+           "ORDER BY p.score DESC, p.id DESC")
+    List<PostSummaryDTO> findTopInCommunityAfter(@Param("communityId") Long communityId, @Param("score") int score,
+                                                 @Param("id") Long id, Pageable pageable);
+    
+    @Query(SELECT_POST_SUMMARY + "WHERE p.community.id IN :communityIds " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummaryDTO> findNewInCommunitiesAfter(@Param("communityIds") List<Long> communityIds, @Param("createdAt") LocalDateTime createdAt,
+                                                   @Param("id") Long id, Pageable pageable);
+    
+    @Query(SELECT_POST_SUMMARY + "WHERE p.community.id IN :communityIds " +
+           "AND (p.hotScore < :hotScore OR (p.hotScore = :hotScore AND p.id < :id)) " +
+           "ORDER BY p.hotScore DESC, p.id DESC")
+    List<PostSummaryDTO> findHotInCommunitiesAfter(@Param("communityIds") List<Long> communityIds, @Param("hotScore") double hotScore,
+                                                   @Param("id") Long id, Pageable pageable);
     
-    @Query("SELECT p FROM Post p WHERE p.title LIKE %:query% OR p.content LIKE %:query%")
-    Page<Post> searchPosts(String query, Pageable pageable);
+    @Query(SELECT_POST_SUMMARY + "WHERE p.community.id IN :communityIds " +
+           "AND (p.score < :score OR (p.score = :score AND p.id < :id)) " +
+           "ORDER BY p.score DESC, p.id DESC")
+    List<PostSummaryDTO> findTopInCommunitiesAfter(@Param("communityIds") List<Long> communityIds, @Param("score") int score,
+                                                   @Param("id") Long id, Pageable pageable);
 }
\ No newline at end of file
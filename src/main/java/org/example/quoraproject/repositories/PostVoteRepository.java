@@ -2,8 +2,12 @@ package org.example.quoraproject.repositories;
 
 import org.example.quoraproject.models.PostVote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,7 @@ public interface PostVoteRepository extends JpaRepository<PostVote, Long> {
     void deleteByUserIdAndPostId(Long userId, Long postId);
     long countByPostIdAndVoteType(Long postId, PostVote.VoteType voteType);
     
+    // [postId, voteType] rows for one user across a page of posts, in a single IN query
+    @Query("SELECT pv.post.id, pv.voteType FROM PostVote pv WHERE pv.user.id = :userId AND pv.post.id IN :postIds")
+    List<Object[]> findVoteTypesByUserIdAndPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
 }
\ No newline at end of file
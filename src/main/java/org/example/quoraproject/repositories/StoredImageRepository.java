@@ -0,0 +1,45 @@
+package org.example.quoraproject.repositories;
+
+import org.example.quoraproject.models.StoredImage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredImageRepository extends JpaRepository<StoredImage, Long> {
+    Optional<StoredImage> findByHash(String hash);
+    
+    Optional<StoredImage> findByUrl(String url);
+    
+    // Joins the caller's transaction: the reference commits or rolls back with the post that holds it
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredImage i SET i.refCount = i.refCount + 1 WHERE i.url = :url")
+    int addReference(@Param("url") String url);
+    
+    // Called after the releasing transaction committed, when its resources are still bound, so it
+    // needs a transaction of its own. updatedAt starts the grace period before the sweep
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE StoredImage i SET i.refCount = i.refCount - 1, i.updatedAt = LOCAL DATETIME " +
+           "WHERE i.url = :url AND i.refCount > 0")
+    int removeReference(@Param("url") String url);
+    
+    @Query("SELECT i FROM StoredImage i WHERE i.refCount = 0 AND i.updatedAt < :cutoff ORDER BY i.id")
+    List<StoredImage> findUnreferencedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    // Re-checks both conditions as it deletes, so a reference or upload since the sweep read the row wins
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StoredImage i WHERE i.id = :id AND i.refCount = 0 AND i.updatedAt < :cutoff")
+    int deleteIfUnreferenced(@Param("id") Long id, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -3,10 +3,13 @@ package org.example.quoraproject.repositories;
 import org.example.quoraproject.models.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -14,7 +17,35 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     
+    // Account check for stateless tokens (UserPrincipalCache.isActive); empty once the user is deleted
+    @Query("SELECT u.enabled FROM User u WHERE u.id = :id")
+    Optional<Boolean> findEnabledById(@Param("id") Long id);
+    
+    @EntityGraph("User.withJoinedCommunities")
+    Optional<User> findWithJoinedCommunitiesById(Long id);
+    
     @Query("SELECT u FROM User u JOIN u.joinedCommunities c WHERE c.id = :communityId")
     Page<User> findByCommunityId(@Param("communityId") Long communityId, Pageable pageable);
+    
+    // Karma is a running total, moved by the same delta as the vote that changed it
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.karma = u.karma + :delta WHERE u.id = (SELECT p.user.id FROM Post p WHERE p.id = :postId)")
+    int adjustKarmaForPostAuthor(@Param("postId") Long postId, @Param("delta") int delta);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.karma = u.karma + :delta WHERE u.id = (SELECT c.user.id FROM Comment c WHERE c.id = :commentId)")
+    int adjustKarmaForCommentAuthor(@Param("commentId") Long commentId, @Param("delta") int delta);
+    
+    @Query("SELECT COALESCE(MAX(u.id), 0) FROM User u")
+    long findMaxId();
+    
+    // Set-based karma repair for one id range, used by the offline recompute job
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.karma = " +
+           "COALESCE((SELECT SUM(p.score) FROM Post p WHERE p.user.id = u.id), 0) + " +
+           "COALESCE((SELECT SUM(c.score) FROM Comment c WHERE c.user.id = u.id), 0) " +
+           "WHERE u.id BETWEEN :fromId AND :toId")
+    int recomputeKarma(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
 
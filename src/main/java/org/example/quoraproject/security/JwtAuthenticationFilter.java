@@ -1,11 +1,12 @@
 package org.example.quoraproject.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.example.quoraproject.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,6 +16,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
@@ -24,6 +27,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService; // Use UserDetailsService instead
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Value("${jwt.stateless:true}")
+    private boolean statelessEnabled;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -34,13 +43,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (token != null) {
 
             try {
-                String username = jwtUtil.extractUsername(token);
+                // One parse checks signature and expiry and yields every claim
+                Claims claims = jwtUtil.parseToken(token);
+                String username = claims.getSubject();
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    
-                    if (jwtUtil.validateToken(token, userDetails)) {
-                        UsernamePasswordAuthenticationToken authentication =
-                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    UsernamePasswordAuthenticationToken authentication = authenticate(claims, username);
+                    if (authentication != null) {
                         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                         SecurityContextHolder.getContext().setAuthentication(authentication);
                     }
@@ -53,6 +61,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Stateless tokens carry the user id, so the principal is built from claims plus a cached account
+    // check by id; tokens issued before the claim existed resolve the user through the principal cache.
+    // Returns null for deleted or disabled accounts.
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims, String username) {
+        Long userId = jwtUtil.extractUserId(claims);
+        if (statelessEnabled && userId != null) {
+            if (!userPrincipalCache.isActive(userId)) {
+                return null;
+            }
+            return new UsernamePasswordAuthenticationToken(new JwtPrincipal(userId, username), null, List.of());
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (!userDetails.isEnabled() || !userDetails.isAccountNonLocked()) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
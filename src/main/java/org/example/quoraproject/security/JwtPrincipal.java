@@ -0,0 +1,12 @@
+package org.example.quoraproject.security;
+
+import java.security.Principal;
+
+// Authenticated caller as carried by the token's claims; load the User only when a handler needs more
+public record JwtPrincipal(Long userId, String username) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
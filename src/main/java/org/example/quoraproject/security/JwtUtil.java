@@ -1,9 +1,12 @@
 package org.example.quoraproject.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.example.quoraproject.models.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -17,14 +20,29 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
+    static final String USER_ID_CLAIM = "uid";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration:86400}")
     private Long expiration;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Both are immutable and thread-safe, so they are built once instead of per token
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    // Verifies the signature and expiry; throws JwtException for any token that should not be trusted
+    public Claims parseToken(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public String extractUsername(String token) {
@@ -36,24 +54,20 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(parseToken(token));
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Null for tokens issued before the user id was added to the claims
+    public Long extractUserId(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        return userId instanceof Number number ? number.longValue() : null;
     }
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user && user.getId() != null) {
+            claims.put(USER_ID_CLAIM, user.getId());
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
@@ -63,12 +77,7 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration * 1000))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
-
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
-}
\ No newline at end of file
+}
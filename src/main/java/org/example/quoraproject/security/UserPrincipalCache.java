@@ -0,0 +1,142 @@
+package org.example.quoraproject.security;
+
+import org.example.quoraproject.dtos.PrincipalCacheStats;
+import org.example.quoraproject.models.User;
+import org.example.quoraproject.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU caches for authentication, bounded by entry count and TTL: users by username, and for stateless
+ * tokens whether the account behind a user id still exists and is enabled. Account changes invalidate
+ * the user's entries; a load that started before an invalidation is not stored, so it cannot put the
+ * old account back. Both read the users table, so a disabled or deleted account is refused by every
+ * instance within one TTL, and across restarts.
+ */
+@Component
+public class UserPrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${auth.principal-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${auth.principal-cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+
+    // User id to whether its tokens are still accepted; also holds ids whose account is gone
+    private final LinkedHashMap<Long, ActiveEntry> active = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private record Entry(User user, long expiresAt) {
+    }
+
+    private record ActiveEntry(boolean active, long expiresAt) {
+    }
+
+    public Optional<User> get(String username) {
+        long stamp;
+        synchronized (this) {
+            Entry entry = entries.get(username);
+            if (entry != null && entry.expiresAt() >= System.currentTimeMillis()) {
+                hits.increment();
+                return Optional.of(entry.user());
+            }
+            if (entry != null) {
+                entries.remove(username);
+            }
+            misses.increment();
+            stamp = generation;
+        }
+
+        // Unknown usernames are not cached, so a later registration is seen immediately
+        Optional<User> user = userRepository.findByUsername(username);
+        user.ifPresent(found -> put(username, found, stamp));
+        return user;
+    }
+
+    public synchronized void invalidate(String username) {
+        generation++;
+        if (entries.remove(username) != null) {
+            invalidations.increment();
+        }
+    }
+
+    // Whether tokens carrying this user id are accepted: the account exists and is enabled
+    public boolean isActive(Long userId) {
+        long stamp;
+        synchronized (this) {
+            ActiveEntry entry = active.get(userId);
+            if (entry != null && entry.expiresAt() >= System.currentTimeMillis()) {
+                hits.increment();
+                return entry.active();
+            }
+            if (entry != null) {
+                active.remove(userId);
+            }
+            misses.increment();
+            stamp = generation;
+        }
+
+        boolean enabled = userRepository.findEnabledById(userId).orElse(false);
+        putActive(userId, enabled, stamp);
+        return enabled;
+    }
+
+    public synchronized void invalidate(Long userId) {
+        generation++;
+        if (active.remove(userId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized PrincipalCacheStats getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return new PrincipalCacheStats(hitCount, misses.sum(), evictions.sum(), invalidations.sum(),
+                entries.size(), active.size(), lookups > 0 ? (double) hitCount / lookups : 0);
+    }
+
+    private synchronized void put(String username, User user, long stamp) {
+        if (generation != stamp) {
+            return;
+        }
+        entries.put(username, new Entry(user, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private synchronized void putActive(Long userId, boolean enabled, long stamp) {
+        if (generation != stamp) {
+            return;
+        }
+        active.put(userId, new ActiveEntry(enabled, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Map.Entry<Long, ActiveEntry>> eldest = active.entrySet().iterator();
+        while (active.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.quoraproject.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.quoraproject.dtos.BulkDeleteStatus;
+import org.example.quoraproject.utils.CommentPath;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Set-based deletes for comment subtrees, posts and communities. Rows are removed in batches of at
+ * most deletes.batch-size ids, each batch in its own short transaction, children before parents:
+ * votes, then comments deepest first (so every reply is gone before its parent and the
+ * self-referencing FK never blocks), then posts and memberships. Nothing is loaded as an entity, and a community of any size is
+ * deleted by a background job instead of on the request thread.
+ */
+@Service
+public class BulkDeleteService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CommentTreeCache commentTreeCache;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Value("${deletes.batch-size:1000}")
+    private int batchSize;
+
+    private ExecutorService worker;
+
+    private final Map<Long, BulkDeleteStatus> communityDeletes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        worker = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // Deletes a comment and all replies under it, keeping the post's comment counter in step per batch
+    public int deleteCommentSubtree(Long postId, String path) {
+        String pattern = CommentPath.subtreePattern(path);
+        int deleted = 0;
+        List<Map<String, Object>> rows;
+        // A reply's path extends its parent's, so path DESC (read backwards on idx_comments_post_path) puts
+        // every reply ahead of its parent, and a batch never holds a parent without its replies
+        while (!(rows = jdbcTemplate.queryForList("SELECT id, depth FROM comments WHERE post_id = ? AND path LIKE ? " +
+                "ORDER BY path DESC LIMIT ?", postId, pattern, batchSize)).isEmpty()) {
+            List<Map<String, Object>> batch = rows;
+            deleted += transactionTemplate.execute(tx -> {
+                int removed = deleteComments(batch);
+                jdbcTemplate.update("UPDATE posts SET comment_count = comment_count - ? WHERE id = ?", removed, postId);
+                return removed;
+            });
+        }
+        return deleted;
+    }
+
+    public void deletePost(Long postId) {
+        deletePosts(List.of(postId), null);
+    }
+
+    // Starts a background delete of the community and everything in it, or returns the one already running
+    public synchronized BulkDeleteStatus startCommunityDelete(Long communityId) {
+        BulkDeleteStatus current = communityDeletes.get(communityId);
+        if (current != null && current.isRunning()) {
+            return current;
+        }
+
+        Long totalPosts = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts WHERE community_id = ?",
+                Long.class, communityId);
+        BulkDeleteStatus status = new BulkDeleteStatus(communityId, totalPosts != null ? totalPosts : 0);
+        communityDeletes.put(communityId, status);
+        worker.execute(() -> {
+            try {
+                deleteCommunity(communityId, status);
+                status.complete();
+            } catch (RuntimeException e) {
+                status.fail(e.getMessage());
+            }
+        });
+        return status;
+    }
+
+    public BulkDeleteStatus getCommunityDeleteStatus(Long communityId) {
+        return communityDeletes.get(communityId);
+    }
+
+    private void deleteCommunity(Long communityId, BulkDeleteStatus status) {
+        List<Long> postIds;
+        while (!(postIds = jdbcTemplate.queryForList("SELECT id FROM posts WHERE community_id = ? LIMIT ?",
+                Long.class, communityId, batchSize)).isEmpty()) {
+            deletePosts(postIds, status);
+        }
+
+        List<Long> memberIds;
+        while (!(memberIds = jdbcTemplate.queryForList(
+                "SELECT user_id FROM user_communities WHERE community_id = ? LIMIT ?",
+                Long.class, communityId, batchSize)).isEmpty()) {
+            MapSqlParameterSource params = new MapSqlParameterSource("communityId", communityId)
+                    .addValue("userIds", memberIds);
+            namedParameterJdbcTemplate.update(
+                    "DELETE FROM user_communities WHERE community_id = :communityId AND user_id IN (:userIds)", params);
+        }
+
+        jdbcTemplate.update("DELETE FROM communities WHERE id = ?", communityId);
+        searchService.removeCommunity(communityId);
+    }
+
+    private void deletePosts(List<Long> postIds, BulkDeleteStatus status) {
+        MapSqlParameterSource posts = new MapSqlParameterSource("postIds", postIds).addValue("limit", batchSize);
+
+        List<Map<String, Object>> rows;
+        while (!(rows = namedParameterJdbcTemplate.queryForList(
+                "SELECT id, depth FROM comments WHERE post_id IN (:postIds) ORDER BY depth DESC LIMIT :limit",
+                posts)).isEmpty()) {
+            List<Map<String, Object>> batch = rows;
+            int removed = transactionTemplate.execute(tx -> deleteComments(batch));
+            if (status != null) {
+                status.getCommentsDeleted().addAndGet(removed);
+            }
+        }
+
+        int votes = deleteInBatches("post_votes", posts);
+        if (status != null) {
+            status.getVotesDeleted().addAndGet(votes);
+        }
+        deleteInBatches("feed_entries", posts);
+
+        List<String> imageUrls = namedParameterJdbcTemplate.queryForList(
+                "SELECT image_url FROM posts WHERE id IN (:postIds) AND image_url IS NOT NULL", posts, String.class);
+        int removed = namedParameterJdbcTemplate.update("DELETE FROM posts WHERE id IN (:postIds)", posts);
+        postIds.forEach(commentTreeCache::invalidatePost);
+        postIds.forEach(searchService::removePost);
+        imageUrls.forEach(fileUploadService::release);
+        if (status != null) {
+            status.getPostsDeleted().addAndGet(removed);
+        }
+    }
+
+    // Votes of the batch, then its rows one depth at a time, deepest first: the FK is checked per row,
+    // so a statement must not remove a parent ahead of a reply it also removes. Rows are id/depth pairs
+    // selected deepest first; returns comments deleted
+    private int deleteComments(List<Map<String, Object>> rows) {
+        TreeMap<Integer, List<Long>> idsByDepth = new TreeMap<>(Comparator.reverseOrder());
+        for (Map<String, Object> row : rows) {
+            idsByDepth.computeIfAbsent(((Number) row.get("depth")).intValue(), depth -> new ArrayList<>())
+                    .add(((Number) row.get("id")).longValue());
+        }
+        List<Long> ids = idsByDepth.values().stream().flatMap(List::stream).toList();
+        namedParameterJdbcTemplate.update("DELETE FROM comment_votes WHERE comment_id IN (:ids)",
+                new MapSqlParameterSource("ids", ids));
+        int deleted = 0;
+        for (List<Long> level : idsByDepth.values()) {
+            deleted += namedParameterJdbcTemplate.update("DELETE FROM comments WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", level));
+        }
+        return deleted;
+    }
+
+    // Rows of a table keyed by post, selected and deleted by primary key a batch at a time
+    private int deleteInBatches(String table, MapSqlParameterSource posts) {
+        int deleted = 0;
+        List<Long> ids;
+        while (!(ids = namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM " + table + " WHERE post_id IN (:postIds) LIMIT :limit",
+                posts, Long.class)).isEmpty()) {
+            deleted += namedParameterJdbcTemplate.update("DELETE FROM " + table + " WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", ids));
+        }
+        return deleted;
+    }
+}
@@ -1,20 +1,41 @@
 package org.example.quoraproject.services;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import org.example.quoraproject.dtos.CommentDTO;
+import org.example.quoraproject.dtos.CommentTreeDTO;
+import org.example.quoraproject.dtos.CursorPage;
 import org.example.quoraproject.models.Post;
 import org.example.quoraproject.models.Comment;
 import org.example.quoraproject.models.User;
 import org.example.quoraproject.repositories.PostRepository;
 import org.example.quoraproject.repositories.CommentRepository;
 import org.example.quoraproject.repositories.UserRepository;
+import org.example.quoraproject.utils.CommentPath;
+import org.example.quoraproject.utils.CommentSort;
+import org.example.quoraproject.utils.ETags;
+import org.example.quoraproject.utils.ReplyCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CommentService {
@@ -27,34 +48,250 @@ public class CommentService {
     @Autowired
     private UserRepository userRepository;
 
-    public List<Comment> getCommentsByPostId(Long postId, int page, int size) {
-        // Get top-level comments (no parent)
-        List<Comment> topLevelComments = commentRepository.findByPostIdAndParentCommentIsNull(postId, PageRequest.of(page, size)).getContent();
+    @Autowired
+    private CommentTreeCache commentTreeCache;
+
+    @Autowired
+    private BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Reply levels are native statements assembled per frontier; going through the persistence context
+    // keeps them on the transaction's connection
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${comments.tree.max-depth:10}")
+    private int maxDepthLimit;
+
+    @Value("${comments.tree.max-children:100}")
+    private int maxChildrenLimit;
+
+    @Value("${comments.tree.max-nodes:500}")
+    private int maxNodes;
+
+    // Reply columns in CommentTreeDTO constructor order, then the ranking key and whether replies exist below
+    private static final String REPLY_SELECT =
+            "SELECT c.id, c.content, c.post_id, c.parent_comment_id, u.id AS author_id, u.username, c.upvotes, " +
+            "c.downvotes, c.score, c.depth, c.created_at, c.updated_at, %s AS sort_key, " +
+            "CASE WHEN EXISTS (SELECT 1 FROM comments g WHERE g.post_id = c.post_id AND g.parent_comment_id = c.id) " +
+            "THEN 1 ELSE 0 END AS has_replies " +
+            "FROM comments c LEFT JOIN users u ON u.id = c.user_id " +
+            "WHERE c.post_id = ? AND c.parent_comment_id = ?";
+
+    public List<CommentTreeDTO> getCommentsByPostId(Long postId, CommentSort sort, int page, int size,
+                                                    int maxDepth, int maxChildren) {
+        int pageSize = clamp(size, 1, maxNodes);
+        List<CommentTreeDTO> topLevelComments = commentRepository.findTopLevelNodes(postId,
+                PageRequest.of(page, pageSize, sort.toSort()));
+        attachReplies(topLevelComments, sort, null, clamp(maxDepth, 0, maxDepthLimit),
+                clamp(maxChildren, 1, maxChildrenLimit), maxNodes - topLevelComments.size());
+        return topLevelComments;
+    }
+    
+    // Weak: derived from persisted comment state, which covers comment writes and votes but not renames of
+    // the authors shown in the tree. Per-user trees carry myVote, so the caller is part of the tag.
+    public String getCommentsETag(Long postId, Long userId) {
+        List<Object[]> version = postRepository.findCommentsVersionById(postId);
+        Object caller = userId != null ? userId : "anon";
+        // A missing post has an empty tree; its tag can never match one of an existing post
+        return version.isEmpty() ? ETags.weak("none", caller) : ETags.weak(version.get(0)[0], version.get(0)[1], caller);
+    }
+    
+    // Same tree as getCommentsByPostId, served from the serialized tree cache. Only for responses that do
+    // not depend on the caller: per-user myVote would make every entry private to one user.
+    public byte[] getCommentsJsonByPostId(Long postId, CommentSort sort, int page, int size,
+                                          int maxDepth, int maxChildren) {
+        // Keyed by the limits the tree is actually built with, so requests past a cap share one entry
+        CommentTreeCache.Key key = new CommentTreeCache.Key(postId, sort, page, clamp(size, 1, maxNodes),
+                clamp(maxDepth, 0, maxDepthLimit), clamp(maxChildren, 1, maxChildrenLimit));
+        byte[] json = commentTreeCache.get(key);
+        if (json == null) {
+            long stamp = commentTreeCache.stamp(postId);
+            try {
+                json = objectMapper.writeValueAsBytes(getCommentsByPostId(postId, sort, page, key.size(),
+                        key.maxDepth(), key.maxChildren()));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to serialize comments", e);
+            }
+            commentTreeCache.put(key, json, stamp);
+        }
+        return json;
+    }
+    
+    // "Continue this thread": a comment and its replies under the same limits as the post listing
+    public Optional<CommentTreeDTO> getCommentThread(Long commentId, CommentSort sort, int maxDepth, int maxChildren) {
+        Optional<CommentTreeDTO> root = commentRepository.findNodeById(commentId);
+        root.ifPresent(comment -> attachReplies(List.of(comment), sort, null, clamp(maxDepth, 0, maxDepthLimit),
+                clamp(maxChildren, 1, maxChildrenLimit), maxNodes - 1));
+        return root;
+    }
+    
+    // Resumes a truncated branch from its moreRepliesToken: the next replies of that parent, in the sort
+    // the token was issued for, each with its own subtree
+    public CursorPage<CommentTreeDTO> getMoreReplies(String token, int maxDepth, int maxChildren) {
+        ReplyCursor cursor = ReplyCursor.decode(token);
+        CommentTreeDTO parent = new CommentTreeDTO();
+        parent.setId(cursor.parentId());
+        parent.setPostId(cursor.postId());
+        attachReplies(List.of(parent), cursor.sort(), cursor, clamp(maxDepth, 0, maxDepthLimit) + 1,
+                clamp(maxChildren, 1, maxChildrenLimit), maxNodes);
+        return new CursorPage<>(parent.getReplies(), parent.getMoreRepliesToken(), parent.getMoreRepliesToken() != null);
+    }
+    
+    /**
+     * Attaches replies under the given nodes breadth-first, one statement per level. Each parent's replies
+     * are read from its (post_id, parent_comment_id, key, id) index in order and stop after maxChildren + 1
+     * rows (the extra row only signals that more exist), and the whole response stops growing once the
+     * node budget is spent, so work is bounded by the limits rather than by the size of the thread. Every
+     * branch that was cut gets a token to resume it from. after skips replies of the roots already shown
+     * by an earlier response.
+     */
+    private void attachReplies(List<CommentTreeDTO> roots, CommentSort sort, ReplyCursor after, int levels,
+                               int maxChildren, int budget) {
+        List<CommentTreeDTO> frontier = roots;
+        for (int level = 1; level <= levels && budget > 0 && !frontier.isEmpty(); level++) {
+            ReplyCursor levelAfter = level == 1 ? after : null;
+            List<CommentTreeDTO> rows = findReplies(frontier, sort, levelAfter, maxChildren + 1);
+            List<CommentTreeDTO> linked = linkReplies(frontier, rows, sort, levelAfter, maxChildren, budget);
+            budget -= linked.size();
+            frontier = linked;
+        }
         
-        // For each top-level comment, load its replies
-        for (Comment comment : topLevelComments) {
-            loadRepliesRecursively(comment);
+        // Loaded replies already know whether they have replies of their own; only roots that never got a
+        // level (depth limit 0 or no budget left) need a probe row per parent
+        ReplyCursor frontierAfter = frontier == roots ? after : null;
+        if (frontier == roots && !frontier.isEmpty()) {
+            Set<Long> withReplies = new HashSet<>();
+            for (CommentTreeDTO reply : findReplies(frontier, sort, after, 1)) {
+                withReplies.add(reply.getParentCommentId());
+            }
+            for (CommentTreeDTO comment : frontier) {
+                comment.setHasReplies(withReplies.contains(comment.getId()));
+            }
+        }
+        for (CommentTreeDTO comment : frontier) {
+            if (Boolean.TRUE.equals(comment.getHasReplies())) {
+                comment.setMoreRepliesToken(resumeToken(sort, comment, frontierAfter));
+            }
+        }
+    }
+    
+    // Returns the rows that fit and marks parents that lost some
+    private List<CommentTreeDTO> linkReplies(List<CommentTreeDTO> parents, List<CommentTreeDTO> rows, CommentSort sort,
+                                             ReplyCursor after, int maxChildren, int budget) {
+        Map<Long, CommentTreeDTO> byId = new HashMap<>();
+        for (CommentTreeDTO parent : parents) {
+            byId.put(parent.getId(), parent);
         }
         
-        return topLevelComments;
+        List<CommentTreeDTO> linked = new ArrayList<>();
+        for (CommentTreeDTO row : rows) {
+            CommentTreeDTO parent = byId.get(row.getParentCommentId());
+            List<CommentTreeDTO> replies = parent.getReplies();
+            if (replies.size() < maxChildren && linked.size() < budget) {
+                replies.add(row);
+                linked.add(row);
+            } else if (parent.getMoreRepliesToken() == null) {
+                parent.setMoreRepliesToken(resumeToken(sort, parent, after));
+            }
+        }
+        return linked;
     }
     
-    private void loadRepliesRecursively(Comment comment) {
-        List<Comment> replies = commentRepository.findByParentCommentId(comment.getId(), PageRequest.of(0, 100)).getContent();
-        comment.setReplies(new java.util.HashSet<>(replies));
+    // Continues after the parent's last reply shown, or where this response started when none fit
+    private static String resumeToken(CommentSort sort, CommentTreeDTO parent, ReplyCursor after) {
+        List<CommentTreeDTO> replies = parent.getReplies();
+        if (!replies.isEmpty()) {
+            CommentTreeDTO last = replies.get(replies.size() - 1);
+            return ReplyCursor.encode(sort, parent.getPostId(), parent.getId(), last.getSortKey(), last.getId());
+        }
+        return after != null
+                ? ReplyCursor.encode(sort, parent.getPostId(), parent.getId(), after.afterKey(), after.afterId())
+                : ReplyCursor.start(sort, parent.getPostId(), parent.getId());
+    }
+    
+    /**
+     * Up to perParent replies of each parent, highest key first and newest first on ties. One branch per
+     * parent, each an index range scan that stops at its LIMIT, so the statement never touches more rows
+     * than it returns however many replies a parent has. The frontier is bounded by the node budget.
+     */
+    @SuppressWarnings("unchecked")
+    private List<CommentTreeDTO> findReplies(List<CommentTreeDTO> parents, CommentSort sort, ReplyCursor after,
+                                             int perParent) {
+        String key = "c." + sort.column();
+        String keyset = "";
+        if (after != null && after.afterId() != null) {
+            keyset = sort == CommentSort.NEW ? " AND c.id < ?" : " AND (" + key + " < ? OR (" + key + " = ? AND c.id < ?))";
+        }
+        String branch = REPLY_SELECT.formatted(key) + keyset
+                + (sort == CommentSort.NEW ? " ORDER BY c.id DESC" : " ORDER BY " + key + " DESC, c.id DESC") + " LIMIT ?";
+        
+        List<String> branches = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        for (CommentTreeDTO parent : parents) {
+            branches.add(branch);
+            params.add(parent.getPostId());
+            params.add(parent.getId());
+            if (!keyset.isEmpty()) {
+                if (sort != CommentSort.NEW) {
+                    params.add(after.afterKey());
+                    params.add(after.afterKey());
+                }
+                params.add(after.afterId());
+            }
+            params.add(perParent);
+        }
+        
+        Query query = entityManager.createNativeQuery(branches.size() == 1 ? branch
+                : "(" + String.join(") UNION ALL (", branches) + ")");
+        for (int i = 0; i < params.size(); i++) {
+            query.setParameter(i + 1, params.get(i));
+        }
         
-        // Recursively load replies for each reply (up to a reasonable depth)
-        for (Comment reply : replies) {
-            loadRepliesRecursively(reply);
+        List<CommentTreeDTO> replies = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            CommentTreeDTO reply = new CommentTreeDTO(toLong(row[0]), (String) row[1], toLong(row[2]), toLong(row[3]),
+                    toLong(row[4]), (String) row[5], toInt(row[6]), toInt(row[7]), toInt(row[8]), toInt(row[9]),
+                    toLocalDateTime(row[10]), toLocalDateTime(row[11]));
+            Number sortKey = (Number) row[12];
+            reply.setSortKey(sort.fractional() ? (Number) sortKey.doubleValue() : (Number) sortKey.longValue());
+            reply.setHasReplies(toInt(row[13]) == 1);
+            replies.add(reply);
         }
+        // UNION ALL does not promise to keep each branch's order
+        replies.sort(Comparator.comparingDouble((CommentTreeDTO reply) -> reply.getSortKey().doubleValue())
+                .thenComparingLong(CommentTreeDTO::getId).reversed());
+        return replies;
     }
-
+    
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+    
+    private static int toInt(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+    
+    // Drivers hand native timestamp columns back as either java.sql.Timestamp or LocalDateTime
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+    
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+    
     public List<Comment> getRepliesByCommentId(Long commentId, int page, int size) {
         return commentRepository.findByParentCommentId(commentId, PageRequest.of(page, size)).getContent();
     }
 
     public Optional<Comment> getCommentById(Long id) {
-        return commentRepository.findById(id);
+        return commentRepository.findWithAuthorById(id);
     }
 
     @Transactional
@@ -77,19 +314,33 @@ public class CommentService {
         if (commentDTO.getParentCommentId() != null) {
             Comment parentComment = commentRepository.findById(commentDTO.getParentCommentId())
                     .orElseThrow(() -> new RuntimeException("Parent comment not found"));
+            if (parentComment.getDepth() >= CommentPath.MAX_DEPTH) {
+                throw new RuntimeException("Reply depth limit reached");
+            }
+            // A NULL parent path would make the reply a root path under a non-root depth, outside the
+            // parent's subtree; CommentPathBackfill assigns every path before requests are served
+            if (parentComment.getPath() == null) {
+                throw new RuntimeException("Parent comment is not ready for replies yet");
+            }
             comment.setParentComment(parentComment);
+            comment.setDepth(parentComment.getDepth() + 1);
         }
         
         Comment savedComment = commentRepository.save(comment);
         
-        // Update comment count for the post
-        updatePostCommentCount(post.getId());
+        // The path ends with the comment's own id, so it can only be set once the insert assigned one
+        String parentPath = savedComment.getParentComment() != null ? savedComment.getParentComment().getPath() : null;
+        savedComment.setPath(CommentPath.of(parentPath, savedComment.getId()));
+        
+        postRepository.adjustCommentCount(post.getId(), 1);
+        commentTreeCache.invalidatePost(post.getId());
         
         return savedComment;
     }
 
+    @Transactional
     public Comment updateComment(Long id, CommentDTO commentDTO) {
-        Optional<Comment> existingComment = commentRepository.findById(id);
+        Optional<Comment> existingComment = commentRepository.findWithAuthorById(id);
         if (existingComment.isEmpty()) {
             throw new RuntimeException("Comment not found");
         }
@@ -102,41 +353,32 @@ public class CommentService {
         }
         
         comment.setContent(commentDTO.getContent());
-        return commentRepository.save(comment);
+        Comment savedComment = commentRepository.save(comment);
+        commentTreeCache.invalidatePost(comment.getPost().getId());
+        return savedComment;
     }
 
-    @Transactional
     public void deleteComment(Long id) {
-    Optional<Comment> commentOpt = commentRepository.findById(id);
-    if (commentOpt.isPresent()) {
-        Comment comment = commentOpt.get();
-        Long postId = comment.getPost().getId();
-        
-        // Delete the comment (this will cascade delete all replies due to CascadeType.ALL)
-        commentRepository.deleteById(id);
-        
-        // Update comment count for the post
-        updatePostCommentCount(postId);
-    }
-}
-    
-
-    
-    private void updatePostCommentCount(Long postId) {
-        Optional<Post> postOpt = postRepository.findById(postId);
-        if (postOpt.isPresent()) {
-            Post post = postOpt.get();
-            // Count all comments for this post (including nested replies)
-            int commentCount = countAllCommentsForPost(postId);
-            post.setCommentCount(commentCount);
-            postRepository.save(post);
+        Optional<Comment> commentOpt = commentRepository.findById(id);
+        if (commentOpt.isPresent()) {
+            Comment comment = commentOpt.get();
+            Long postId = comment.getPost().getId();
+            
+            if (comment.getPath() != null) {
+                bulkDeleteService.deleteCommentSubtree(postId, comment.getPath());
+            } else {
+                // Comments not yet backfilled with a path fall back to cascading through replies,
+                // which leaves no row count behind to subtract
+                transactionTemplate.executeWithoutResult(tx -> {
+                    commentRepository.deleteById(id);
+                    postRepository.recountComments(postId);
+                });
+            }
+            
+            commentTreeCache.invalidatePost(postId);
         }
     }
     
-    private int countAllCommentsForPost(Long postId) {
-        return (int) commentRepository.countByPostId(postId);
-    }
-    
     public long getCommentCountByPostId(Long postId) {
         return commentRepository.countByPostId(postId);
     }
@@ -0,0 +1,153 @@
+package org.example.quoraproject.services;
+
+import org.example.quoraproject.dtos.CommentCacheStats;
+import org.example.quoraproject.utils.CommentSort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of comment tree responses, stored as the JSON bytes sent to the client so a hit skips
+ * both the queries and serialization. Capacity is a byte budget: entries are evicted least recently
+ * used first until the serialized trees fit. Any comment write or comment vote drops every cached
+ * page of that post; a short TTL bounds staleness from write-behind vote counters, which land
+ * after the vote itself.
+ */
+@Component
+public class CommentTreeCache {
+
+    // Rough per-entry overhead of key, entry and map node on top of the JSON bytes
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+    private static final int GENERATION_STRIPES = 1024;
+
+    @Value("${comments.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${comments.cache.ttl-ms:30000}")
+    private long ttlMillis;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<Key>> keysByPost = new HashMap<>();
+    private long bytes;
+
+    // Bumped on every invalidation; a tree loaded across a bump may predate the write and is not stored
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public synchronized byte[] get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt() < System.currentTimeMillis()) {
+            if (entry != null) {
+                remove(key);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.json();
+    }
+
+    // Take before loading the tree and pass to put()
+    public long stamp(Long postId) {
+        return generations.get(stripe(postId));
+    }
+
+    public synchronized void put(Key key, byte[] json, long stamp) {
+        Entry entry = new Entry(json, System.currentTimeMillis() + ttlMillis);
+        if (entry.size() > maxBytes || generations.get(stripe(key.postId())) != stamp) {
+            return;
+        }
+        remove(key);
+        entries.put(key, entry);
+        keysByPost.computeIfAbsent(key.postId(), id -> new HashSet<>()).add(key);
+        bytes += entry.size();
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, Entry> evicted = eldest.next();
+            eldest.remove();
+            forget(evicted.getKey(), evicted.getValue());
+            evictions.increment();
+        }
+    }
+
+    // Drops the post's trees now and again once the surrounding transaction commits, so a reader
+    // that loaded the pre-commit state in between cannot leave it cached
+    public void invalidatePost(Long postId) {
+        invalidateNow(postId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(postId);
+                }
+            });
+        }
+    }
+
+    public synchronized CommentCacheStats getStats() {
+        return new CommentCacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(),
+                entries.size(), bytes, maxBytes);
+    }
+
+    private synchronized void invalidateNow(Long postId) {
+        generations.incrementAndGet(stripe(postId));
+        Set<Key> keys = keysByPost.remove(postId);
+        if (keys != null) {
+            for (Key key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    bytes -= entry.size();
+                }
+            }
+        }
+        invalidations.increment();
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            forget(key, entry);
+        }
+    }
+
+    // Bookkeeping for an entry already taken out of the LRU map
+    private void forget(Key key, Entry entry) {
+        bytes -= entry.size();
+        Set<Key> keys = keysByPost.get(key.postId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByPost.remove(key.postId());
+            }
+        }
+    }
+
+    private static int stripe(Long postId) {
+        return (int) Math.floorMod(postId, (long) GENERATION_STRIPES);
+    }
+
+    public record Key(Long postId, CommentSort sort, int page, int size, int maxDepth, int maxChildren) {
+    }
+
+    private record Entry(byte[] json, long expiresAt) {
+
+        long size() {
+            return json.length + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package org.example.quoraproject.services;
 
+import org.example.quoraproject.dtos.BulkDeleteStatus;
 import org.example.quoraproject.dtos.CommunityDTO;
+import org.example.quoraproject.dtos.CommunitySuggestionDTO;
 import org.example.quoraproject.models.Community;
 import org.example.quoraproject.models.User;
 import org.example.quoraproject.repositories.CommunityRepository;
 import org.example.quoraproject.repositories.UserRepository;
+import org.example.quoraproject.utils.ETags;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -23,6 +26,15 @@ public class CommunityService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private FeedService feedService;
+    
+    @Autowired
+    private BulkDeleteService bulkDeleteService;
+    
+    @Autowired
+    private SearchService searchService;
+    
     public List<Community> getAllCommunities() {
         return communityRepository.findAll();
     }
@@ -35,8 +47,14 @@ public class CommunityService {
         return communityRepository.findAllByOrderByMemberCountDesc(PageRequest.of(page, size));
     }
     
+    // Taken before the community is loaded, see PostService.getPostETag
+    public Optional<String> getCommunityETag(Long id) {
+        List<Object[]> version = communityRepository.findVersionById(id);
+        return version.isEmpty() ? Optional.empty() : Optional.of(ETags.strong(version.get(0)));
+    }
+    
     public Optional<Community> getCommunityById(Long id) {
-        return communityRepository.findById(id);
+        return communityRepository.findWithCreatorById(id);
     }
     
     public Optional<Community> getCommunityByName(String name) {
@@ -64,8 +82,11 @@ public class CommunityService {
         community.setDescription(communityDTO.getDescription());
         community.setCreator(creator);
         community.setMemberCount(1);
+        // Nothing posted yet, so the creator's join backfill is all a timeline needs
+        community.setFeedMaterialized(true);
         
         Community savedCommunity = communityRepository.save(community);
+        searchService.indexCommunity(savedCommunity);
         
         try {
             joinCommunity(creator.getId(), savedCommunity.getId());
@@ -93,6 +114,8 @@ public class CommunityService {
             
             communityRepository.save(community);
             userRepository.save(user);
+            feedService.onCommunityJoined(userId, communityId, community.getMemberCount());
+            searchService.updateCommunityMembers(community);
         }
     }
     
@@ -108,11 +131,17 @@ public class CommunityService {
             community.setMemberCount(Math.max(0, community.getMemberCount() - 1));
             userRepository.save(user);
             communityRepository.save(community);
+            feedService.onCommunityLeft(userId, communityId);
+            searchService.updateCommunityMembers(community);
         }
     }
     
-    public Page<Community> searchCommunities(String query, int page, int size) {
-        return communityRepository.searchCommunities(query, PageRequest.of(page, size));
+    public byte[] searchCommunitiesJson(String query, int page, int size) {
+        return searchService.searchCommunitiesJson(query, page, size);
+    }
+    
+    public List<CommunitySuggestionDTO> autocompleteCommunities(String prefix, int limit) {
+        return searchService.autocompleteCommunities(prefix, limit);
     }
     
     public Page<User> getCommunityMembers(Long communityId, int page, int size) {
@@ -129,7 +158,12 @@ public class CommunityService {
         return userRepository.findByCommunityId(community.getId(), PageRequest.of(page, size));
     }
 
-    public void deleteCommunity(Long id) {
-        communityRepository.deleteById(id);
+    // Runs in the background: a community can hold millions of posts, comments and votes
+    public BulkDeleteStatus deleteCommunity(Long id) {
+        return bulkDeleteService.startCommunityDelete(id);
+    }
+
+    public BulkDeleteStatus getDeleteStatus(Long id) {
+        return bulkDeleteService.getCommunityDeleteStatus(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package org.example.quoraproject.services;
+
+import org.example.quoraproject.dtos.PostSummaryDTO;
+import org.example.quoraproject.models.Post;
+import org.example.quoraproject.repositories.CommunityRepository;
+import org.example.quoraproject.repositories.FeedEntryRepository;
+import org.example.quoraproject.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized home feeds. A new post is pushed into the timeline of every member of its community
+ * with one INSERT ... SELECT over user_communities. Communities above feed.fanout.max-community-size
+ * are skipped on write and merged in at read time instead, so a post to a huge community never
+ * writes millions of rows. A community's timelines are only read once it is marked materialized,
+ * which a background job does after backfilling them. Timelines are capped, and pages past their end
+ * are read from the posts of the small communities.
+ */
+@Service
+public class FeedService {
+
+    private static final String FAN_OUT_SQL =
+            "INSERT INTO feed_entries (user_id, post_id, community_id, post_created_at, created_at, updated_at) " +
+            "SELECT uc.user_id, ?, ?, ?, ?, ? FROM user_communities uc WHERE uc.community_id = ?";
+
+    // Seeds a timeline from the newest posts of one community (on join or when the community is materialized)
+    private static final String BACKFILL_SQL =
+            "INSERT INTO feed_entries (user_id, post_id, community_id, post_created_at, created_at, updated_at) " +
+            "SELECT ?, p.id, p.community_id, p.created_at, ?, ? FROM posts p " +
+            "WHERE p.community_id = ? AND NOT EXISTS " +
+            "(SELECT 1 FROM feed_entries f WHERE f.user_id = ? AND f.post_id = p.id) " +
+            "ORDER BY p.created_at DESC, p.id DESC LIMIT ?";
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FeedEntryRepository feedEntryRepository;
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Value("${feed.fanout.max-community-size:10000}")
+    private int maxFanOutCommunitySize;
+
+    @Value("${feed.max-entries-per-user:1000}")
+    private int maxEntriesPerUser;
+
+    public void fanOut(Post post, int communityMemberCount) {
+        if (communityMemberCount > maxFanOutCommunitySize) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(FAN_OUT_SQL, post.getId(), post.getCommunity().getId(),
+                Timestamp.valueOf(post.getCreatedAt()), now, now, post.getCommunity().getId());
+    }
+
+    public void onCommunityJoined(Long userId, Long communityId, int communityMemberCount) {
+        if (communityMemberCount <= maxFanOutCommunitySize) {
+            backfill(userId, communityId);
+        }
+    }
+
+    public void onCommunityLeft(Long userId, Long communityId) {
+        feedEntryRepository.deleteByUserIdAndCommunityId(userId, communityId);
+    }
+
+    /**
+     * Newest-first page of the user's feed after the given (createdAt, id) position. Returns up to
+     * {@code limit} posts merged from the materialized timeline and the large joined communities,
+     * or null if the user has not joined any community.
+     */
+    public List<PostSummaryDTO> getFeedAfter(Long userId, LocalDateTime createdAt, Long id, int limit) {
+        List<Long> smallCommunityIds = new ArrayList<>();
+        List<Long> largeCommunityIds = new ArrayList<>();
+        for (Object[] row : communityRepository.findJoinedCommunitySizes(userId)) {
+            Long communityId = (Long) row[0];
+            int memberCount = ((Number) row[1]).intValue();
+            boolean materialized = (Boolean) row[2];
+            (materialized && memberCount <= maxFanOutCommunitySize ? smallCommunityIds : largeCommunityIds).add(communityId);
+        }
+        if (smallCommunityIds.isEmpty() && largeCommunityIds.isEmpty()) {
+            return null;
+        }
+
+        PageRequest pageRequest = PageRequest.of(0, limit);
+        List<PostSummaryDTO> posts = new ArrayList<>(feedEntryRepository.findFeedAfter(userId, createdAt, id, pageRequest));
+        // The timeline only holds the newest feed.max-entries-per-user posts. Past its end, the small
+        // communities are read directly, continuing from the last entry it returned
+        if (posts.size() < limit && !smallCommunityIds.isEmpty()) {
+            PostSummaryDTO last = posts.isEmpty() ? null : posts.get(posts.size() - 1);
+            posts.addAll(postRepository.findNewInCommunitiesAfter(smallCommunityIds,
+                    last != null ? last.getCreatedAt() : createdAt, last != null ? last.getId() : id,
+                    PageRequest.of(0, limit - posts.size())));
+        }
+        if (!largeCommunityIds.isEmpty()) {
+            posts.addAll(postRepository.findNewInCommunitiesAfter(largeCommunityIds, createdAt, id, pageRequest));
+        }
+
+        // A community that grew past the threshold can appear in both sources
+        Map<Long, PostSummaryDTO> merged = new LinkedHashMap<>();
+        posts.stream()
+                .sorted(Comparator.comparing(PostSummaryDTO::getCreatedAt).thenComparing(PostSummaryDTO::getId).reversed())
+                .forEach(post -> merged.putIfAbsent(post.getId(), post));
+        return merged.values().stream().limit(limit).toList();
+    }
+
+    // Keeps each timeline at feed.max-entries-per-user rows; getFeedAfter reads older items from the
+    // community listings
+    @Scheduled(fixedDelayString = "${feed.trim-interval-ms:600000}")
+    public void trimTimelines() {
+        List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT user_id FROM feed_entries GROUP BY user_id HAVING COUNT(*) > ?", Long.class, maxEntriesPerUser);
+        userIds.forEach(this::trimTimeline);
+    }
+
+    private void trimTimeline(Long userId) {
+        jdbcTemplate.query("SELECT post_created_at, post_id FROM feed_entries WHERE user_id = ? " +
+                        "ORDER BY post_created_at DESC, post_id DESC LIMIT 1 OFFSET ?",
+                rs -> {
+                    Timestamp cutoffCreatedAt = rs.getTimestamp(1);
+                    long cutoffPostId = rs.getLong(2);
+                    jdbcTemplate.update("DELETE FROM feed_entries WHERE user_id = ? AND (post_created_at < ? " +
+                                    "OR (post_created_at = ? AND post_id <= ?))",
+                            userId, cutoffCreatedAt, cutoffCreatedAt, cutoffPostId);
+                }, userId, maxEntriesPerUser);
+    }
+
+    /**
+     * Moves communities across feed.fanout.max-community-size. One that grew past it is unmarked: fan-out
+     * already stopped and reads merge its posts, so its timeline entries go stale. One at or below it
+     * (shrunk, or never materialized) gets every member's timeline backfilled before it is marked, so
+     * reads only switch to the timelines once they are complete. Members joining meanwhile are
+     * backfilled by the join itself, and new posts are already fanned out by size.
+     */
+    @Scheduled(fixedDelayString = "${feed.materialize-interval-ms:60000}")
+    public void syncMaterializedCommunities() {
+        jdbcTemplate.update("UPDATE communities SET feed_materialized = FALSE " +
+                "WHERE feed_materialized = TRUE AND member_count > ?", maxFanOutCommunitySize);
+
+        List<Long> communityIds = jdbcTemplate.queryForList("SELECT id FROM communities " +
+                "WHERE feed_materialized = FALSE AND member_count <= ?", Long.class, maxFanOutCommunitySize);
+        for (Long communityId : communityIds) {
+            long afterUserId = 0;
+            List<Long> memberIds;
+            do {
+                memberIds = jdbcTemplate.queryForList("SELECT user_id FROM user_communities " +
+                                "WHERE community_id = ? AND user_id > ? ORDER BY user_id LIMIT ?",
+                        Long.class, communityId, afterUserId, BACKFILL_BATCH_SIZE);
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                List<Object[]> args = new ArrayList<>();
+                for (Long memberId : memberIds) {
+                    args.add(new Object[]{memberId, now, now, communityId, memberId, maxEntriesPerUser});
+                }
+                if (!args.isEmpty()) {
+                    List<Long> batch = memberIds;
+                    transactionTemplate.executeWithoutResult(tx -> {
+                        jdbcTemplate.batchUpdate(BACKFILL_SQL, args);
+                        batch.forEach(this::trimTimeline);
+                    });
+                    afterUserId = memberIds.get(memberIds.size() - 1);
+                }
+            } while (memberIds.size() == BACKFILL_BATCH_SIZE);
+
+            jdbcTemplate.update("UPDATE communities SET feed_materialized = TRUE WHERE id = ? AND member_count <= ?",
+                    communityId, maxFanOutCommunitySize);
+        }
+    }
+
+    // A backfill stops at the community's newest feed.max-entries-per-user posts, which can end above the
+    // timeline's oldest entry; getFeedAfter only reads the listings below that entry, so the posts in
+    // between would be skipped. Trimming right away cuts the timeline back to a newest-first prefix of
+    // everything it covers.
+    private void backfill(Long userId, Long communityId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.update(BACKFILL_SQL, userId, now, now, communityId, userId, maxEntriesPerUser);
+            trimTimeline(userId);
+        });
+    }
+}
@@ -1,27 +1,71 @@
 package org.example.quoraproject.services;
 
+import org.example.quoraproject.models.StoredImage;
+import org.example.quoraproject.repositories.StoredImageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
 
+/**
+ * Content-addressed image storage. An upload is streamed to a temp file while its SHA-256 is computed,
+ * then moved to uploads/ab/cd/abcd....ext, where ab and cd are the first hash bytes, so no directory
+ * grows past a few thousand entries. Uploading bytes that are already stored reuses the existing file.
+ * References are counted per post holding the URL: attach adds one inside the post's transaction, release
+ * drops one after it commits, and files left without references for file.unreferenced-grace-ms (never
+ * attached, or released by their last post) are removed by a sweep.
+ */
 @Service
 public class FileUploadService {
 
+    private static final int LOCK_STRIPES = 64;
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}\\.[A-Za-z0-9]{1,10}");
+    private static final int SWEEP_BATCH_SIZE = 500;
+
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
 
+    @Value("${file.unreferenced-grace-ms:86400000}")
+    private long unreferencedGraceMillis;
+
+    @Autowired
+    private StoredImageRepository storedImageRepository;
+
+    // Reference changes for one hash are serialized, so dropping the last reference can never delete
+    // the file while an upload of the same bytes is adding one
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
     public String uploadImage(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
@@ -33,42 +77,111 @@ public class FileUploadService {
             throw new IllegalArgumentException("File must be an image");
         }
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
+        // Partial uploads live next to the store, on the same file system, so the final move is atomic
+        Path incomingPath = Paths.get(uploadDir, ".incoming");
+        Files.createDirectories(incomingPath);
 
-        // Generate unique filename
         String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".") 
+        String extension = originalFilename != null && originalFilename.contains(".")
             ? originalFilename.substring(originalFilename.lastIndexOf("."))
             : ".jpg";
-        String filename = UUID.randomUUID().toString() + extension;
-
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        if (!EXTENSION.matcher(extension).matches()) {
+            extension = ".jpg";
+        }
 
-        // Return relative URL
-        return "/uploads/" + filename;
+        MessageDigest digest = sha256();
+        Path tempFile = Files.createTempFile(incomingPath, "upload-", ".part");
+        try {
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return store(HexFormat.of().formatHex(digest.digest()), extension, tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
     }
 
-    public void deleteImage(String imageUrl) {
-        if (imageUrl != null && imageUrl.startsWith("/uploads/")) {
-            try {
-                String filename = imageUrl.substring("/uploads/".length());
-                Path filePath = Paths.get(uploadDir, filename);
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                // Log error but don't throw exception
-                System.err.println("Failed to delete image: " + imageUrl);
+    // Returns the stored copy of these bytes, moving the temp file into place if there is none. The URL of
+    // the first upload (and so its extension) is kept for every later duplicate. Touching the row restarts
+    // its grace period, so the sweep leaves it alone until the post that uploaded it had time to attach it.
+    private String store(String hash, String extension, Path tempFile) throws IOException {
+        synchronized (lock(hash)) {
+            StoredImage image = storedImageRepository.findByHash(hash).orElseGet(() -> {
+                StoredImage created = new StoredImage();
+                created.setHash(hash);
+                created.setUrl("/uploads/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension);
+                return created;
+            });
+            Path target = Paths.get(uploadDir, image.getUrl().substring("/uploads/".length()));
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
             }
+            image.setSizeBytes(Files.size(target));
+            image.setUpdatedAt(LocalDateTime.now());
+            storedImageRepository.save(image);
+            return image.getUrl();
+        }
+    }
+
+    // Adds the reference of a post that now holds this URL; joins the post's transaction, so a rollback
+    // takes it back. Other URLs are not ours to count, but an /uploads/ URL must be a stored image.
+    public void attach(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith("/uploads/")) {
+            return;
+        }
+        if (storedImageRepository.addReference(imageUrl) == 0) {
+            throw new IllegalArgumentException("Unknown image: " + imageUrl);
         }
     }
 
+    // Drops the reference of a post that let go of this URL, once that change is committed, so a rollback
+    // keeps the image. Files uploaded before content addressing have no row and are deleted directly,
+    // as they always were.
+    public void release(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith("/uploads/")) {
+            return;
+        }
+        afterCommit(() -> {
+            if (storedImageRepository.removeReference(imageUrl) == 0 && storedImageRepository.findByUrl(imageUrl).isEmpty()) {
+                try {
+                    Files.deleteIfExists(Paths.get(uploadDir, imageUrl.substring("/uploads/".length())));
+                } catch (IOException e) {
+                    // Log error but don't throw exception
+                    System.err.println("Failed to delete image: " + imageUrl);
+                }
+            }
+        });
+    }
+
+    // Removes images nobody references, once they stayed that way for the grace period. The row is deleted
+    // conditionally under the hash lock, so an attach or a new upload of the same bytes in the meantime wins.
+    @Scheduled(fixedDelayString = "${file.sweep-interval-ms:3600000}")
+    public void sweepUnreferenced() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(unreferencedGraceMillis));
+        List<StoredImage> candidates;
+        do {
+            candidates = storedImageRepository.findUnreferencedBefore(cutoff, PageRequest.of(0, SWEEP_BATCH_SIZE));
+            for (StoredImage image : candidates) {
+                synchronized (lock(image.getHash())) {
+                    if (storedImageRepository.deleteIfUnreferenced(image.getId(), cutoff) == 0) {
+                        continue;
+                    }
+                    try {
+                        Files.deleteIfExists(Paths.get(uploadDir, image.getUrl().substring("/uploads/".length())));
+                    } catch (IOException e) {
+                        System.err.println("Failed to delete image: " + image.getUrl());
+                    }
+                }
+            }
+        } while (candidates.size() == SWEEP_BATCH_SIZE);
+    }
+
     public ResponseEntity<Resource> getImage(String filename) throws IOException {
-        Path filePath = Paths.get(uploadDir, filename);
+        // Content-addressed names resolve to their shard directory
+        Path filePath = CONTENT_NAME.matcher(filename).matches()
+                ? Paths.get(uploadDir, filename.substring(0, 2), filename.substring(2, 4), filename)
+                : Paths.get(uploadDir, filename);
         
         if (!Files.exists(filePath)) {
             throw new IOException("File not found: " + filename);
@@ -92,4 +205,29 @@ public class FileUploadService {
                 .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
                 .body(resource);
     }
-}
\ No newline at end of file
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Object lock(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
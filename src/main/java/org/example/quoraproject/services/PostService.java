@@ -1,6 +1,8 @@
 package org.example.quoraproject.services;
 
+import org.example.quoraproject.dtos.CursorPage;
 import org.example.quoraproject.dtos.PostDTO;
+import org.example.quoraproject.dtos.PostSummaryDTO;
 import org.example.quoraproject.models.Community;
 import org.example.quoraproject.models.Post;
 import org.example.quoraproject.models.User;
@@ -8,13 +10,18 @@ import org.example.quoraproject.repositories.CommunityRepository;
 import org.example.quoraproject.repositories.PostRepository;
 import org.example.quoraproject.repositories.PostVoteRepository;
 import org.example.quoraproject.repositories.UserRepository;
+import org.example.quoraproject.utils.ETags;
+import org.example.quoraproject.utils.PostCursor;
+import org.example.quoraproject.utils.PostSort;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,46 +38,140 @@ public class PostService {
     @Autowired
     private CommunityRepository communityRepository;
     
-    public Page<Post> getAllPosts(int page, int size) {
-        return postRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(page, size));
+    @Autowired
+    private FeedService feedService;
+    
+    public Page<PostSummaryDTO> getAllPosts(int page, int size) {
+        return postRepository.findNewPosts(PageRequest.of(page, size));
     }
     
-    public Page<Post> getHotPosts(int page, int size) {
+    public Page<PostSummaryDTO> getHotPosts(int page, int size) {
         return postRepository.findHotPosts(PageRequest.of(page, size));
     }
     
-    public Page<Post> getTopPosts(int page, int size) {
-        return postRepository.findAllByOrderByScoreDesc(PageRequest.of(page, size));
+    public Page<PostSummaryDTO> getTopPosts(int page, int size) {
+        return postRepository.findTopPosts(PageRequest.of(page, size));
     }
     
-    public Page<Post> getNewPosts(int page, int size) {
-        return postRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(page, size));
+    public Page<PostSummaryDTO> getNewPosts(int page, int size) {
+        return postRepository.findNewPosts(PageRequest.of(page, size));
     }
     
-    public Page<Post> getPostsByCommunity(Long communityId, int page, int size) {
-        return postRepository.findByCommunityId(communityId, PageRequest.of(page, size));
+    public Page<PostSummaryDTO> getPostsByCommunity(Long communityId, int page, int size, PostSort sort) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        return switch (sort) {
+            case HOT -> postRepository.findHotInCommunity(communityId, pageRequest);
+            case TOP -> postRepository.findTopInCommunity(communityId, pageRequest);
+            case NEW -> postRepository.findNewInCommunity(communityId, pageRequest);
+        };
     }
     
-    public Page<Post> getFeedForUser(Long userId, int page, int size) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public Page<PostSummaryDTO> getFeedForUser(Long userId, int page, int size, PostSort sort) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
         
-        List<Long> communityIds = user.getJoinedCommunities().stream()
-                .map(Community::getId)
-                .collect(Collectors.toList());
+        if (sort == PostSort.NEW) {
+            // Materialized timeline: read the first offset + size rows and slice
+            PostCursor first = PostCursor.decode(null, PostSort.NEW);
+            List<PostSummaryDTO> posts = feedService.getFeedAfter(userId, first.getCreatedAt(), first.getId(), (page + 1) * size + 1);
+            if (posts == null) {
+                // If user hasn't joined any communities, show all posts
+                return getAllPosts(page, size);
+            }
+            int from = Math.min(page * size, posts.size());
+            int to = Math.min(from + size, posts.size());
+            // Total is only known up to the next page, which is all Page.isLast() needs
+            return new PageImpl<>(posts.subList(from, to), PageRequest.of(page, size), posts.size());
+        }
         
+        List<Long> communityIds = getJoinedCommunityIds(userId);
         if (communityIds.isEmpty()) {
             // If user hasn't joined any communities, show all posts
-            return getAllPosts(page, size);
+            return sort == PostSort.HOT ? getHotPosts(page, size) : getTopPosts(page, size);
+        }
+        
+        PageRequest pageRequest = PageRequest.of(page, size);
+        return sort == PostSort.HOT
+                ? postRepository.findHotByJoinedCommunities(communityIds, pageRequest)
+                : postRepository.findTopByJoinedCommunities(communityIds, pageRequest);
+    }
+    
+    private List<Long> getJoinedCommunityIds(Long userId) {
+        return communityRepository.findJoinedCommunitySizes(userId).stream()
+                .map(row -> (Long) row[0])
+                .collect(Collectors.toList());
+    }
+    
+    public CursorPage<PostSummaryDTO> getPostsByCursor(PostSort sort, String cursor, int size) {
+        PostCursor.checkSize(size);
+        PostCursor after = PostCursor.decode(cursor, sort);
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<PostSummaryDTO> posts = switch (sort) {
+            case HOT -> postRepository.findHotAfter(after.getHotScore(), after.getId(), limit);
+            case TOP -> postRepository.findTopAfter(after.getScore(), after.getId(), limit);
+            case NEW -> postRepository.findNewAfter(after.getCreatedAt(), after.getId(), limit);
+        };
+        return toCursorPage(posts, size, sort);
+    }
+    
+    public CursorPage<PostSummaryDTO> getPostsByCommunityCursor(Long communityId, PostSort sort, String cursor, int size) {
+        PostCursor.checkSize(size);
+        PostCursor after = PostCursor.decode(cursor, sort);
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<PostSummaryDTO> posts = switch (sort) {
+            case HOT -> postRepository.findHotInCommunityAfter(communityId, after.getHotScore(), after.getId(), limit);
+            case TOP -> postRepository.findTopInCommunityAfter(communityId, after.getScore(), after.getId(), limit);
+            case NEW -> postRepository.findNewInCommunityAfter(communityId, after.getCreatedAt(), after.getId(), limit);
+        };
+        return toCursorPage(posts, size, sort);
+    }
+    
+    public CursorPage<PostSummaryDTO> getFeedForUserCursor(Long userId, PostSort sort, String cursor, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        
+        PostCursor.checkSize(size);
+        PostCursor after = PostCursor.decode(cursor, sort);
+        if (sort == PostSort.NEW) {
+            List<PostSummaryDTO> posts = feedService.getFeedAfter(userId, after.getCreatedAt(), after.getId(), size + 1);
+            return posts != null ? toCursorPage(posts, size, sort) : getPostsByCursor(sort, cursor, size);
+        }
+        
+        List<Long> communityIds = getJoinedCommunityIds(userId);
+        if (communityIds.isEmpty()) {
+            return getPostsByCursor(sort, cursor, size);
         }
         
-        return postRepository.findByJoinedCommunities(communityIds, PageRequest.of(page, size));
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<PostSummaryDTO> posts = sort == PostSort.HOT
+                ? postRepository.findHotInCommunitiesAfter(communityIds, after.getHotScore(), after.getId(), limit)
+                : postRepository.findTopInCommunitiesAfter(communityIds, after.getScore(), after.getId(), limit);
+        return toCursorPage(posts, size, sort);
+    }
+    
+    // Queries fetch size + 1 rows; the extra row only signals that another page exists
+    private CursorPage<PostSummaryDTO> toCursorPage(List<PostSummaryDTO> posts, int size, PostSort sort) {
+        boolean hasNext = posts.size() > size;
+        List<PostSummaryDTO> content = hasNext ? posts.subList(0, size) : posts;
+        String nextCursor = hasNext ? PostCursor.encode(sort, content.get(content.size() - 1)) : null;
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+    
+    // Read before the post itself: if a write lands in between, the tag is older than the body and the
+    // next conditional GET simply misses, never the other way round
+    public Optional<String> getPostETag(Long id) {
+        List<Object[]> version = postRepository.findVersionById(id);
+        return version.isEmpty() ? Optional.empty() : Optional.of(ETags.strong(version.get(0)));
     }
     
+    // Author and community are serialized with the post, so they are fetched in the same query
     public Optional<Post> getPostById(Long id) {
-        return postRepository.findById(id);
+        return postRepository.findWithAuthorAndCommunityById(id);
     }
     
+    @Transactional
     public Post createPost(PostDTO postDTO) {
         User user = userRepository.findById(postDTO.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -85,16 +186,21 @@ public class PostService {
         post.setType(postDTO.getType() != null ? postDTO.getType() : Post.PostType.TEXT);
         post.setUser(user);
         post.setCommunity(community);
+        fileUploadService.attach(post.getImageUrl());
         
-        return postRepository.save(post);
+        Post savedPost = postRepository.save(post);
+        feedService.fanOut(savedPost, community.getMemberCount());
+        searchService.indexPost(savedPost);
+        return savedPost;
     }
     
-    public Page<Post> searchPosts(String query, int page, int size) {
-        return postRepository.searchPosts(query, PageRequest.of(page, size));
+    public byte[] searchPostsJson(String query, int page, int size) {
+        return searchService.searchPostsJson(query, page, size);
     }
     
+    @Transactional
     public Post updatePost(Long id, PostDTO postDTO) {
-        Optional<Post> existingPost = postRepository.findById(id);
+        Optional<Post> existingPost = postRepository.findWithAuthorAndCommunityById(id);
         if (existingPost.isEmpty()) {
             throw new RuntimeException("Post not found");
         }
@@ -106,6 +212,7 @@ public class PostService {
             throw new RuntimeException("You can only edit your own posts");
         }
         
+        String previousImageUrl = post.getImageUrl();
         post.setTitle(postDTO.getTitle());
         post.setContent(postDTO.getContent());
         post.setUrl(postDTO.getUrl());
@@ -114,33 +221,41 @@ public class PostService {
             post.setType(postDTO.getType());
         }
         
-        return postRepository.save(post);
+        // The old image is only released once the edit commits
+        if (!Objects.equals(previousImageUrl, post.getImageUrl())) {
+            fileUploadService.attach(post.getImageUrl());
+            fileUploadService.release(previousImageUrl);
+        }
+        
+        Post savedPost = postRepository.save(post);
+        searchService.indexPost(savedPost);
+        return savedPost;
     }
     
+    @Transactional
     public void updateCommentCount(Long postId) {
-        Optional<Post> postOpt = postRepository.findById(postId);
-        if (postOpt.isPresent()) {
-            Post post = postOpt.get();
-            int commentCount = post.getComments() != null ? post.getComments().size() : 0;
-            post.setCommentCount(commentCount);
-            postRepository.save(post);
-        }
+        postRepository.recountComments(postId);
     }
         
     @Autowired
     private PostRepository postRepository;
 
-    @Transactional
+    @Autowired
+    private BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    // Batched, with each batch committed on its own, so a post with a huge thread never holds locks for long
     public void deletePost(Long id) {
-    // This will delete the post and all its relationships due to the CASCADE settings
-    postRepository.deletePostAndRelations(id);
+        bulkDeleteService.deletePost(id);
     }
     
-    public void refreshAllCommentCounts() {
-        List<Post> allPosts = postRepository.findAll();
-        for (Post post : allPosts) {
-            updateCommentCount(post.getId());
-        }
+    public int refreshAllCommentCounts() {
+        return postRepository.recountAllComments();
     }
     
     private void refreshPostVoteCounts(Post post) {
@@ -0,0 +1,85 @@
+package org.example.quoraproject.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of search responses, stored as the JSON bytes sent to the client. A miss installs
+ * an in-flight future before running the search, so concurrent requests for the same key wait on that
+ * one computation instead of each running their own. Entries expire a few seconds after they complete;
+ * results are not invalidated by writes, so new or edited posts show up within one TTL.
+ */
+@Component
+public class SearchResultCache {
+
+    @Value("${search.cache.ttl-ms:5000}")
+    private long ttlMillis;
+
+    @Value("${search.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // query is the normalized form, so "Java  Streams" and "streams java" share an entry
+    public record Key(String kind, String query, int page, int size) {
+    }
+
+    // expiresAt stays at Long.MAX_VALUE while the result is being computed
+    private record Entry(CompletableFuture<byte[]> result, long expiresAt) {
+        boolean isExpired(long now) {
+            return expiresAt < now;
+        }
+    }
+
+    public byte[] get(Key key, Supplier<byte[]> loader) {
+        long now = System.currentTimeMillis();
+        Entry inFlight = new Entry(new CompletableFuture<>(), Long.MAX_VALUE);
+        Entry current = entries.compute(key, (k, existing) ->
+                existing == null || existing.isExpired(now) ? inFlight : existing);
+        if (current != inFlight) {
+            return await(current.result());
+        }
+
+        byte[] json;
+        try {
+            json = loader.get();
+        } catch (Throwable e) {
+            // Waiters see the same failure, Errors included, so none of them blocks forever on the
+            // future; the next request retries
+            inFlight.result().completeExceptionally(e);
+            entries.remove(key, inFlight);
+            throw e;
+        }
+        inFlight.result().complete(json);
+
+        Entry completed = new Entry(inFlight.result(), System.currentTimeMillis() + ttlMillis);
+        entries.replace(key, inFlight, completed);
+        if (entries.size() > maxEntries) {
+            long cutoff = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.isExpired(cutoff));
+            if (entries.size() > maxEntries) {
+                entries.remove(key, completed);
+            }
+        }
+        return json;
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
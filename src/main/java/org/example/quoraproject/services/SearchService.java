@@ -0,0 +1,221 @@
+package org.example.quoraproject.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.quoraproject.dtos.CommunitySuggestionDTO;
+import org.example.quoraproject.dtos.PostSummaryDTO;
+import org.example.quoraproject.models.Community;
+import org.example.quoraproject.models.Post;
+import org.example.quoraproject.repositories.CommunityRepository;
+import org.example.quoraproject.repositories.PostRepository;
+import org.example.quoraproject.utils.InvertedIndex;
+import org.example.quoraproject.utils.PrefixIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Full-text search over posts and communities from in-process inverted indexes, kept current by
+ * the services that write them and rebuilt from the database at startup. BM25 picks the candidates
+ * from the index; the candidates are then loaded and re-ranked with their live score (or member
+ * count) and age, so votes never have to touch the index. Titles and names are indexed twice to
+ * weigh them above body text. Community names also feed a prefix index for autocomplete, ranked by
+ * member count.
+ */
+@Service
+public class SearchService {
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+    private static final int MAX_SUGGESTIONS = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // BM25 candidates re-ranked for every page of a query
+    @Value("${search.max-candidates:1000}")
+    private int maxCandidates;
+
+    @Value("${search.score-weight:0.3}")
+    private double scoreWeight;
+
+    @Value("${search.recency-weight:0.5}")
+    private double recencyWeight;
+
+    @Value("${search.recency-half-life-hours:72}")
+    private double recencyHalfLifeHours;
+
+    private final InvertedIndex postIndex = new InvertedIndex();
+    private final InvertedIndex communityIndex = new InvertedIndex();
+    private final PrefixIndex<CommunitySuggestionDTO> communityNames = new PrefixIndex<>(MAX_SUGGESTIONS);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Documents indexed by a write while the rebuild runs are newer than what it reads, so they are kept
+        rebuild("SELECT id, title, title, content FROM posts WHERE id > ? ORDER BY id LIMIT ?", rs -> {
+            if (!postIndex.contains(rs.getLong(1))) {
+                postIndex.put(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+            }
+        });
+        rebuild("SELECT id, name, display_name, description, member_count FROM communities WHERE id > ? ORDER BY id LIMIT ?", rs -> {
+            if (!communityIndex.contains(rs.getLong(1))) {
+                Community community = new Community();
+                community.setId(rs.getLong(1));
+                community.setName(rs.getString(2));
+                community.setDisplayName(rs.getString(3));
+                community.setDescription(rs.getString(4));
+                community.setMemberCount(rs.getInt(5));
+                indexCommunity(community);
+            }
+        });
+        System.out.println("SearchService: indexed " + postIndex.size() + " posts and "
+                + communityIndex.size() + " communities");
+    }
+
+    public void indexPost(Post post) {
+        postIndex.put(post.getId(), post.getTitle(), post.getTitle(), post.getContent());
+    }
+
+    public void removePost(Long postId) {
+        postIndex.remove(postId);
+    }
+
+    public void indexCommunity(Community community) {
+        communityIndex.put(community.getId(), community.getName(), community.getDisplayName(),
+                community.getDisplayName(), community.getDescription());
+        updateCommunityMembers(community);
+    }
+
+    // Member counts only rank autocomplete suggestions, so joins and leaves skip the full-text index
+    public void updateCommunityMembers(Community community) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(community.getName());
+        if (community.getDisplayName() != null) {
+            keys.add(community.getDisplayName());
+            if (community.getDisplayName().startsWith("r/")) {
+                keys.add(community.getDisplayName().substring(2));
+            }
+        }
+        communityNames.put(community.getId(), new CommunitySuggestionDTO(community.getId(), community.getName(),
+                community.getDisplayName(), community.getMemberCount()), community.getMemberCount(), keys);
+    }
+
+    public void removeCommunity(Long communityId) {
+        communityIndex.remove(communityId);
+        communityNames.remove(communityId);
+    }
+
+    public List<CommunitySuggestionDTO> autocompleteCommunities(String prefix, int limit) {
+        return communityNames.complete(prefix, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    // Serialized result pages behind the search cache; identical concurrent queries share one search
+    public byte[] searchPostsJson(String query, int page, int size) {
+        return cached("posts", query, page, size, () -> searchPosts(query, page, size));
+    }
+
+    public byte[] searchCommunitiesJson(String query, int page, int size) {
+        return cached("communities", query, page, size, () -> searchCommunities(query, page, size));
+    }
+
+    // BM25 relevance, boosted by log-scaled score and by a recency bonus that halves every half-life
+    public Page<PostSummaryDTO> searchPosts(String query, int page, int size) {
+        LocalDateTime now = LocalDateTime.now();
+        return search(postIndex, query, page, size, postRepository::findSummariesByIdIn, PostSummaryDTO::getId, post -> {
+            double ageHours = Math.max(0, Duration.between(post.getCreatedAt(), now).toMinutes() / 60.0);
+            return (1 + scoreWeight * Math.log10(1 + Math.max(post.getScore(), 0)))
+                    * (1 + recencyWeight * Math.pow(0.5, ageHours / recencyHalfLifeHours));
+        });
+    }
+
+    public Page<Community> searchCommunities(String query, int page, int size) {
+        return search(communityIndex, query, page, size, communityRepository::findAllById, Community::getId,
+                community -> 1 + scoreWeight * Math.log10(1 + Math.max(community.getMemberCount(), 0)));
+    }
+
+    private <T> Page<T> search(InvertedIndex index, String query, int page, int size,
+                               Function<List<Long>, List<T>> loader, Function<T, Long> idOf, ToDoubleFunction<T> boost) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        // The same candidate set for every page: a set that grew with the page would re-rank differently,
+        // and items would repeat or go missing between pages
+        InvertedIndex.Result result = index.search(query, maxCandidates);
+
+        Map<Long, Double> relevance = new HashMap<>();
+        result.hits().forEach(hit -> relevance.put(hit.id(), hit.score()));
+
+        // Rows deleted since they were indexed simply fail to load
+        List<T> ranked = new ArrayList<>(loader.apply(new ArrayList<>(relevance.keySet())));
+        Map<Long, Double> blended = new HashMap<>();
+        for (T item : ranked) {
+            Long id = idOf.apply(item);
+            blended.put(id, relevance.get(id) * boost.applyAsDouble(item));
+        }
+        ranked.sort(Comparator.comparingDouble((T item) -> blended.get(idOf.apply(item))).reversed()
+                .thenComparing(idOf, Comparator.reverseOrder()));
+
+        int from = (int) Math.min(pageRequest.getOffset(), ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        // Only the ranked candidates can be paged to, so they are the total; broad queries stop at the cap
+        return new PageImpl<>(ranked.subList(from, to), pageRequest, ranked.size());
+    }
+
+    private byte[] cached(String kind, String query, int page, int size, Supplier<Page<?>> search) {
+        // Term order and repeats do not change BM25 scores, so they do not split the cache
+        String normalized = InvertedIndex.tokenize(query).stream().distinct().sorted().collect(Collectors.joining(" "));
+        return searchResultCache.get(new SearchResultCache.Key(kind, normalized, page, size), () -> {
+            try {
+                return objectMapper.writeValueAsBytes(search.get());
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to serialize search results", e);
+            }
+        });
+    }
+
+    // Walks a table in id order; the query must select the id first and take (lastId, limit) parameters
+    private void rebuild(String selectSql, RowCallbackHandler handler) {
+        long lastId = 0;
+        while (true) {
+            List<Long> ids = new ArrayList<>();
+            jdbcTemplate.query(selectSql, rs -> {
+                ids.add(rs.getLong(1));
+                handler.processRow(rs);
+            }, lastId, REBUILD_BATCH_SIZE);
+            if (ids.isEmpty()) {
+                return;
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+}
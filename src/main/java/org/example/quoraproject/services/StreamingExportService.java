@@ -0,0 +1,133 @@
+package org.example.quoraproject.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.quoraproject.dtos.CommentExportDTO;
+import org.example.quoraproject.dtos.CommentTreeDTO;
+import org.example.quoraproject.dtos.UserResponseDTO;
+import org.example.quoraproject.utils.StreamFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listings too large to build in memory, written to the response while they are read. Rows come in
+ * keyset batches of export.batch-size and each batch is serialized and flushed before the next one is
+ * queried, so heap use is bounded by one batch and no connection is held while a slow client drains
+ * the output.
+ */
+@Service
+public class StreamingExportService {
+
+    private static final String USERS_SQL =
+            "SELECT id, username, email, karma, created_at, updated_at FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    // Thread order: a parent's path is a prefix of its replies' paths, so it always sorts first
+    private static final String COMMENTS_SQL =
+            "SELECT c.id, c.content, c.post_id, c.parent_comment_id, c.user_id, u.username, c.upvotes, c.downvotes, " +
+            "c.score, c.depth, c.created_at, c.updated_at, c.path FROM comments c LEFT JOIN users u ON u.id = c.user_id " +
+            "WHERE c.post_id = ? AND c.path > ? ORDER BY c.path LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${export.batch-size:1000}")
+    private int batchSize;
+
+    public StreamingResponseBody streamUsers(StreamFormat format) {
+        return out -> {
+            try (RowWriter writer = new RowWriter(out, format)) {
+                long lastId = 0;
+                while (true) {
+                    List<UserResponseDTO> batch = jdbcTemplate.query(USERS_SQL, (rs, rowNum) -> {
+                        UserResponseDTO user = new UserResponseDTO();
+                        user.setId(rs.getLong(1));
+                        user.setUsername(rs.getString(2));
+                        user.setEmail(rs.getString(3));
+                        user.setKarma(rs.getInt(4));
+                        user.setCreatedAt(rs.getObject(5, LocalDateTime.class));
+                        user.setUpdatedAt(rs.getObject(6, LocalDateTime.class));
+                        return user;
+                    }, lastId, batchSize);
+                    writer.writeAll(batch);
+                    if (batch.size() < batchSize) {
+                        return;
+                    }
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            }
+        };
+    }
+
+    public StreamingResponseBody streamComments(Long postId, StreamFormat format) {
+        return out -> {
+            try (RowWriter writer = new RowWriter(out, format)) {
+                String lastPath = "";
+                while (true) {
+                    List<String> paths = new ArrayList<>();
+                    List<CommentExportDTO> batch = jdbcTemplate.query(COMMENTS_SQL, (rs, rowNum) -> {
+                        paths.add(rs.getString(13));
+                        Long userId = rs.getObject(5, Long.class);
+                        return new CommentExportDTO(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                                rs.getObject(4, Long.class),
+                                userId != null ? new CommentTreeDTO.UserSummary(userId, rs.getString(6)) : null,
+                                rs.getInt(7), rs.getInt(8), rs.getInt(9), rs.getInt(10),
+                                rs.getObject(11, LocalDateTime.class), rs.getObject(12, LocalDateTime.class));
+                    }, postId, lastPath, batchSize);
+                    writer.writeAll(batch);
+                    if (batch.size() < batchSize) {
+                        return;
+                    }
+                    lastPath = paths.get(paths.size() - 1);
+                }
+            }
+        };
+    }
+
+    // Serializes rows one at a time onto the response; closing ends the array (JSON) and the stream
+    private class RowWriter implements AutoCloseable {
+        private final JsonGenerator generator;
+        private final StreamFormat format;
+
+        RowWriter(OutputStream out, StreamFormat format) throws IOException {
+            this.generator = objectMapper.createGenerator(out);
+            this.format = format;
+            if (format == StreamFormat.JSON) {
+                generator.writeStartArray();
+            } else {
+                // No separator between root values: each line ends with its own newline instead
+                generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            }
+        }
+
+        void writeAll(List<?> rows) throws IOException {
+            for (Object row : rows) {
+                generator.writeObject(row);
+                if (format == StreamFormat.NDJSON) {
+                    generator.writeRaw('\n');
+                }
+            }
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (format == StreamFormat.JSON) {
+                generator.writeEndArray();
+            }
+            generator.close();
+        }
+    }
+}
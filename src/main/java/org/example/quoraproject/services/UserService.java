@@ -6,14 +6,15 @@ import org.example.quoraproject.models.Community;
 import org.example.quoraproject.models.User;
 import org.example.quoraproject.repositories.CommunityRepository;
 import org.example.quoraproject.repositories.UserRepository;
+import org.example.quoraproject.security.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -26,40 +27,36 @@ public class UserService implements UserDetailsService {
     private PasswordEncoder passwordEncoder;
     @Autowired
     private CommunityRepository communityRepository;
+    @Autowired
+    private FeedService feedService;
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
+        return userPrincipalCache.get(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
-    }
-
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
     
     public Optional<User> getUserByIdWithCommunities(Long id) {
-        Optional<User> userOpt = userRepository.findById(id);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            // Force initialization of joinedCommunities
-            user.getJoinedCommunities().size();
-        }
-        return userOpt;
+        return userRepository.findWithJoinedCommunitiesById(id);
     }
 
     public Optional<User> getUserByUsername(String username) {
         return userRepository.findByUsername(username);
     }
 
+    @Transactional
     public void joinCommunity(Long userId, Long communityId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
         Community community = communityRepository.findById(communityId).orElseThrow(() -> new RuntimeException("Community not found"));
         user.getJoinedCommunities().add(community);
         userRepository.save(user);
+        feedService.onCommunityJoined(userId, communityId, community.getMemberCount());
     }
 
     public User createUser(UserDTO userDTO) {
@@ -88,6 +85,7 @@ public class UserService implements UserDetailsService {
         }
         
         User user = existingUser.get();
+        String previousUsername = user.getUsername();
         
         if (userDTO.getUsername() != null && !userDTO.getUsername().trim().isEmpty()) {
             // Check if username is already taken by another user
@@ -106,17 +104,27 @@ public class UserService implements UserDetailsService {
             user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
         }
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userPrincipalCache.invalidate(previousUsername);
+        userPrincipalCache.invalidate(savedUser.getUsername());
+        userPrincipalCache.invalidate(id);
+        return savedUser;
     }
 
+    @Transactional
     public void leaveCommunity(Long userId, Long communityId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
         Community community = communityRepository.findById(communityId).orElseThrow(() -> new RuntimeException("Community not found"));
         user.getJoinedCommunities().remove(community);
         userRepository.save(user);
+        feedService.onCommunityLeft(userId, communityId);
     }
 
     public void deleteUser(Long id) {
+        Optional<User> user = userRepository.findById(id);
         userRepository.deleteById(id);
+        // Outstanding tokens keep the id in their claims; the account check now finds no row for it
+        userPrincipalCache.invalidate(id);
+        user.ifPresent(deleted -> userPrincipalCache.invalidate(deleted.getUsername()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package org.example.quoraproject.services;
+
+import jakarta.annotation.PreDestroy;
+import org.example.quoraproject.utils.CommentRanking;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind buffer for vote counters. Votes on the same post/comment are merged in memory
+ * and applied to the counter rows in JDBC batches, so a viral post takes one row update per
+ * flush interval instead of one per click. Merging into a ConcurrentHashMap only locks the
+ * bin that holds the key, which acts as the lock stripe.
+ */
+@Component
+public class VoteAggregationBuffer {
+
+    // hot_score first so it reads the pre-update score (see PostRepository.applyVoteDelta)
+    private static final String POST_UPDATE_SQL =
+            "UPDATE posts SET hot_score = hot_base + SIGN(score + ?) * LOG10(GREATEST(ABS(score + ?), 1)), " +
+            "upvotes = upvotes + ?, downvotes = downvotes + ?, score = score + ? WHERE id = ?";
+    private static final String POST_KARMA_SQL =
+            "UPDATE users SET karma = karma + ? WHERE id = (SELECT user_id FROM posts WHERE id = ?)";
+    private static final String COMMENT_UPDATE_SQL =
+            "UPDATE comments SET upvotes = upvotes + ?, downvotes = downvotes + ?, score = score + ?, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String COMMENT_RANKING_SQL = CommentRanking.REFRESH_SQL + " WHERE id = ?";
+    private static final String COMMENT_KARMA_SQL =
+            "UPDATE users SET karma = karma + ? WHERE id = (SELECT user_id FROM comments WHERE id = ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CommentTreeCache commentTreeCache;
+
+    private final ConcurrentHashMap<Long, PendingDelta> postDeltas = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, PendingDelta> commentDeltas = new ConcurrentHashMap<>();
+
+    public void recordPostVote(Long postId, int upvoteDelta, int downvoteDelta) {
+        afterCommit(() -> postDeltas.merge(postId, new PendingDelta(upvoteDelta, downvoteDelta), PendingDelta::plus));
+    }
+
+    public void recordCommentVote(Long commentId, int upvoteDelta, int downvoteDelta) {
+        afterCommit(() -> commentDeltas.merge(commentId, new PendingDelta(upvoteDelta, downvoteDelta), PendingDelta::plus));
+    }
+
+    // Only count a vote once its row is committed, otherwise a rolled back vote would still move the counters
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${votes.write-behind.flush-interval-ms:200}")
+    public synchronized void flush() {
+        flush(postDeltas, POST_UPDATE_SQL, null, POST_KARMA_SQL, true);
+        Set<Long> commentIds = flush(commentDeltas, COMMENT_UPDATE_SQL, COMMENT_RANKING_SQL, COMMENT_KARMA_SQL, false);
+        // Trees (and their ETags) read between a vote and this flush show the old counters
+        if (!commentIds.isEmpty()) {
+            String placeholders = String.join(",", Collections.nCopies(commentIds.size(), "?"));
+            jdbcTemplate.queryForList("SELECT DISTINCT post_id FROM comments WHERE id IN (" + placeholders + ")",
+                    Long.class, commentIds.toArray()).forEach(commentTreeCache::invalidatePost);
+        }
+    }
+
+    // For jobs that rewrite counters or karma from the vote tables: no flush starts while the action runs,
+    // so a flush can never land between what the job read and what it writes
+    public synchronized <T> T holdingFlush(Supplier<T> action) {
+        return action.get();
+    }
+
+    // Deltas recorded but not yet written; their votes are already in the vote tables
+    public boolean hasPendingPost(Long postId) {
+        return postDeltas.containsKey(postId);
+    }
+
+    public boolean hasPendingComment(Long commentId) {
+        return commentDeltas.containsKey(commentId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // rankingSql, if set, recomputes derived ranking keys from the updated counters of each row.
+    // Returns the ids whose counters were written
+    private Set<Long> flush(ConcurrentHashMap<Long, PendingDelta> deltas, String counterSql, String rankingSql,
+                       String karmaSql, boolean hotRanked) {
+        if (deltas.isEmpty()) {
+            return Set.of();
+        }
+
+        // remove() is atomic per key: a vote merged after it lands in a fresh entry for the next flush
+        List<Object[]> counterArgs = new ArrayList<>();
+        List<Object[]> rankingArgs = new ArrayList<>();
+        List<Object[]> karmaArgs = new ArrayList<>();
+        Map<Long, PendingDelta> drained = new HashMap<>();
+        for (Long id : deltas.keySet()) {
+            PendingDelta delta = deltas.remove(id);
+            if (delta == null || delta.isEmpty()) {
+                continue;
+            }
+            drained.put(id, delta);
+            counterArgs.add(hotRanked
+                    ? new Object[]{delta.score(), delta.score(), delta.upvotes(), delta.downvotes(), delta.score(), id}
+                    : new Object[]{delta.upvotes(), delta.downvotes(), delta.score(), id});
+            rankingArgs.add(new Object[]{id});
+            karmaArgs.add(new Object[]{delta.score(), id});
+        }
+        if (drained.isEmpty()) {
+            return Set.of();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(counterSql, counterArgs);
+                if (rankingSql != null) {
+                    jdbcTemplate.batchUpdate(rankingSql, rankingArgs);
+                }
+                jdbcTemplate.batchUpdate(karmaSql, karmaArgs);
+            });
+            return drained.keySet();
+        } catch (RuntimeException e) {
+            // Put the deltas back so the next flush retries them instead of losing votes
+            drained.forEach((id, delta) -> deltas.merge(id, delta, PendingDelta::plus));
+            System.err.println("Failed to flush buffered votes: " + e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private record PendingDelta(int upvotes, int downvotes) {
+
+        PendingDelta plus(PendingDelta other) {
+            return new PendingDelta(upvotes + other.upvotes, downvotes + other.downvotes);
+        }
+
+        int score() {
+            return upvotes - downvotes;
+        }
+
+        boolean isEmpty() {
+            return upvotes == 0 && downvotes == 0;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.example.quoraproject.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.quoraproject.dtos.VoteReconciliationStatus;
+import org.example.quoraproject.utils.CommentRanking;
+import org.example.quoraproject.utils.HotScore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rebuilds post/comment vote counters from the vote tables. Work is split into id-range chunks
+ * run on a bounded pool; each chunk reads its stored counters and one grouped aggregate over the
+ * votes, and writes back only the rows that drifted, so memory and lock time stay per-chunk.
+ * Post chunks also backfill and realign the precomputed hot score, comment chunks the best and
+ * controversial ranking keys.
+ */
+@Service
+public class VoteReconciliationService {
+
+    private static final VoteTable POSTS = new VoteTable("posts", "post_votes", "post_id");
+    private static final VoteTable COMMENTS = new VoteTable("comments", "comment_votes", "comment_id");
+    private static final double HOT_SCORE_TOLERANCE = 1e-6;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private VotingService votingService;
+
+    @Autowired
+    private VoteAggregationBuffer voteAggregationBuffer;
+
+    @Value("${votes.reconcile.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${votes.reconcile.threads:4}")
+    private int threads;
+
+    private ExecutorService workers;
+
+    private volatile VoteReconciliationStatus currentRun;
+
+    @PostConstruct
+    public void init() {
+        workers = Executors.newFixedThreadPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public VoteReconciliationStatus getStatus() {
+        return currentRun;
+    }
+
+    // Starts a run in the background, or returns the one already in progress
+    public synchronized VoteReconciliationStatus start() {
+        if (currentRun != null && currentRun.isRunning()) {
+            return currentRun;
+        }
+
+        long maxPostId = maxId(POSTS);
+        long maxCommentId = maxId(COMMENTS);
+        VoteReconciliationStatus status = new VoteReconciliationStatus(
+                chunkCount(maxPostId) + chunkCount(maxCommentId));
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        submitChunks(POSTS, maxPostId, status, chunks);
+        submitChunks(COMMENTS, maxCommentId, status, chunks);
+
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .thenRun(votingService::recomputeAllKarma)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        status.fail(error.getMessage());
+                    } else {
+                        status.complete();
+                    }
+                });
+
+        currentRun = status;
+        return status;
+    }
+
+    private void submitChunks(VoteTable table, long maxId, VoteReconciliationStatus status,
+                              List<CompletableFuture<Void>> chunks) {
+        for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+            long chunkStart = fromId;
+            long chunkEnd = fromId + chunkSize - 1;
+            chunks.add(CompletableFuture.runAsync(() -> reconcileChunk(table, chunkStart, chunkEnd, status), workers));
+        }
+    }
+
+    private void reconcileChunk(VoteTable table, long fromId, long toId, VoteReconciliationStatus status) {
+        // Stored counters are read before the vote aggregate: a vote committing in between makes
+        // the guarded UPDATE below miss, leaving the row for the next run instead of clobbering it
+        Map<Long, int[]> stored = new HashMap<>();
+        jdbcTemplate.query("SELECT id, upvotes, downvotes, score FROM " + table.name() + " WHERE id BETWEEN ? AND ?",
+                rs -> {
+                    stored.put(rs.getLong(1), new int[]{rs.getInt(2), rs.getInt(3), rs.getInt(4)});
+                }, fromId, toId);
+
+        Map<Long, int[]> actual = new HashMap<>();
+        jdbcTemplate.query("SELECT " + table.foreignKey() + ", " +
+                        "SUM(CASE WHEN vote_type = 'UPVOTE' THEN 1 ELSE 0 END), " +
+                        "SUM(CASE WHEN vote_type = 'DOWNVOTE' THEN 1 ELSE 0 END) " +
+                        "FROM " + table.voteTable() + " WHERE " + table.foreignKey() + " BETWEEN ? AND ? " +
+                        "GROUP BY " + table.foreignKey(),
+                rs -> {
+                    actual.put(rs.getLong(1), new int[]{rs.getInt(2), rs.getInt(3)});
+                }, fromId, toId);
+
+        List<Object[]> corrections = new ArrayList<>();
+        stored.forEach((id, counters) -> {
+            int[] votes = actual.getOrDefault(id, new int[]{0, 0});
+            int upvotes = votes[0];
+            int downvotes = votes[1];
+            if (counters[0] != upvotes || counters[1] != downvotes || counters[2] != upvotes - downvotes) {
+                corrections.add(new Object[]{upvotes, downvotes, upvotes - downvotes, id, counters[0], counters[1]});
+            }
+        });
+
+        // With write-behind on, a committed vote is in the aggregate before its delta reaches the counters.
+        // Correcting such a row would count the vote twice once the delta flushes, so rows with pending
+        // deltas are left for the next run, and no flush may run between this check and the write.
+        // (A vote between its commit and its after-commit callback can still slip through; the next run
+        // repairs it.)
+        int corrected = voteAggregationBuffer.holdingFlush(() -> {
+            corrections.removeIf(row -> table == POSTS
+                    ? voteAggregationBuffer.hasPendingPost((Long) row[3])
+                    : voteAggregationBuffer.hasPendingComment((Long) row[3]));
+            if (!corrections.isEmpty()) {
+                transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.batchUpdate(
+                        "UPDATE " + table.name() + " SET upvotes = ?, downvotes = ?, score = ?, updated_at = CURRENT_TIMESTAMP " +
+                        "WHERE id = ? AND upvotes = ? AND downvotes = ?", corrections));
+            }
+            return corrections.size();
+        });
+
+        if (table == POSTS) {
+            refreshHotScores(fromId, toId);
+        } else {
+            // Ranking keys are derived from the live counters, so refreshing the whole range is idempotent
+            // and also backfills comments that predate them
+            transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.update(
+                    CommentRanking.REFRESH_SQL + " WHERE id BETWEEN ? AND ?", fromId, toId));
+        }
+
+        status.chunkCompleted(stored.size(), corrected);
+    }
+
+    // Backfills hot_base for rows created before hot ranking existed and realigns hot_score.
+    // hot_score is derived from the live score column, so concurrent votes cannot make it stale
+    private void refreshHotScores(long fromId, long toId) {
+        List<Object[]> corrections = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, score, created_at, hot_base, hot_score FROM posts WHERE id BETWEEN ? AND ?",
+                rs -> {
+                    double hotBase = HotScore.ageTerm(rs.getTimestamp(3).toLocalDateTime());
+                    double hotScore = HotScore.of(rs.getInt(2), hotBase);
+                    if (Math.abs(rs.getDouble(4) - hotBase) > HOT_SCORE_TOLERANCE
+                            || Math.abs(rs.getDouble(5) - hotScore) > HOT_SCORE_TOLERANCE) {
+                        corrections.add(new Object[]{hotBase, hotBase, rs.getLong(1)});
+                    }
+                }, fromId, toId);
+
+        if (!corrections.isEmpty()) {
+            transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.batchUpdate(
+                    "UPDATE posts SET hot_base = ?, hot_score = ? + SIGN(score) * LOG10(GREATEST(ABS(score), 1)) " +
+                    "WHERE id = ?", corrections));
+        }
+    }
+
+    private long maxId(VoteTable table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table.name(), Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    private int chunkCount(long maxId) {
+        return (int) ((maxId + chunkSize - 1) / chunkSize);
+    }
+
+    private record VoteTable(String name, String voteTable, String foreignKey) {
+    }
+}
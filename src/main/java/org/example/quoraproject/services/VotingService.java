@@ -1,18 +1,26 @@
 package org.example.quoraproject.services;
 
+import org.example.quoraproject.dtos.CommentTreeDTO;
+import org.example.quoraproject.dtos.PostSummaryDTO;
 import org.example.quoraproject.dtos.VoteDTO;
 import org.example.quoraproject.models.*;
 import org.example.quoraproject.repositories.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class VotingService {
     
+    private static final int KARMA_CHUNK_SIZE = 1000;
+    
     @Autowired
     private PostVoteRepository postVoteRepository;
     
@@ -24,10 +32,21 @@ public class VotingService {
     
     @Autowired
     private CommentRepository commentRepository;
+
+    @Autowired
+    private CommentTreeCache commentTreeCache;
     
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private VoteAggregationBuffer voteAggregationBuffer;
+    
+    // When enabled, vote rows are written immediately but counter/karma deltas are
+    // batched by VoteAggregationBuffer, so returned counts lag by one flush interval
+    @Value("${votes.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+    
     @Transactional
     public Post voteOnPost(VoteDTO voteDTO) {
         User user = userRepository.findById(voteDTO.getUserId())
@@ -38,14 +57,14 @@ public class VotingService {
         PostVote.VoteType voteType = PostVote.VoteType.valueOf(voteDTO.getVoteType());
         
         Optional<PostVote> existingVote = postVoteRepository.findByUserIdAndPostId(user.getId(), post.getId());
+        PostVote.VoteType previousType = existingVote.map(PostVote::getVoteType).orElse(null);
         
         if (existingVote.isPresent()) {
             PostVote vote = existingVote.get();
             if (vote.getVoteType() == voteType) {
                 // Remove vote if clicking same vote type
                 postVoteRepository.delete(vote);
-                updatePostScore(post);
-                return post;
+                return applyPostVoteDelta(post.getId(), previousType, null);
             } else {
                 // Change vote type
                 vote.setVoteType(voteType);
@@ -60,8 +79,7 @@ public class VotingService {
             postVoteRepository.save(newVote);
         }
         
-        updatePostScore(post);
-        return post;
+        return applyPostVoteDelta(post.getId(), previousType, voteType);
     }
     
     @Transactional
@@ -74,14 +92,14 @@ public class VotingService {
         CommentVote.VoteType voteType = CommentVote.VoteType.valueOf(voteDTO.getVoteType());
         
         Optional<CommentVote> existingVote = commentVoteRepository.findByUserIdAndCommentId(user.getId(), comment.getId());
+        CommentVote.VoteType previousType = existingVote.map(CommentVote::getVoteType).orElse(null);
         
         if (existingVote.isPresent()) {
             CommentVote vote = existingVote.get();
             if (vote.getVoteType() == voteType) {
                 // Remove vote if clicking same vote type
                 commentVoteRepository.delete(vote);
-                updateCommentScore(comment);
-                return comment;
+                return applyCommentVoteDelta(comment.getId(), previousType, null);
             } else {
                 // Change vote type
                 vote.setVoteType(voteType);
@@ -96,51 +114,60 @@ public class VotingService {
             commentVoteRepository.save(newVote);
         }
         
-        updateCommentScore(comment);
-        return comment;
+        return applyCommentVoteDelta(comment.getId(), previousType, voteType);
     }
     
-    private void updatePostScore(Post post) {
-        // Count votes directly from repository to avoid lazy loading issues
-        long upvotes = postVoteRepository.countByPostIdAndVoteType(post.getId(), PostVote.VoteType.UPVOTE);
-        long downvotes = postVoteRepository.countByPostIdAndVoteType(post.getId(), PostVote.VoteType.DOWNVOTE);
+    // Applies the counter change between two vote states (null = no vote) with a single
+    // UPDATE, then re-reads the post since the bulk update clears the persistence context
+    private Post applyPostVoteDelta(Long postId, PostVote.VoteType before, PostVote.VoteType after) {
+        int upvoteDelta = delta(before == PostVote.VoteType.UPVOTE, after == PostVote.VoteType.UPVOTE);
+        int downvoteDelta = delta(before == PostVote.VoteType.DOWNVOTE, after == PostVote.VoteType.DOWNVOTE);
         
-        post.setUpvotes((int) upvotes);
-        post.setDownvotes((int) downvotes);
-        post.setScore((int) (upvotes - downvotes));
-        postRepository.save(post);
+        if (writeBehindEnabled) {
+            voteAggregationBuffer.recordPostVote(postId, upvoteDelta, downvoteDelta);
+        } else if (upvoteDelta != 0 || downvoteDelta != 0) {
+            postRepository.applyVoteDelta(postId, upvoteDelta, downvoteDelta);
+            userRepository.adjustKarmaForPostAuthor(postId, upvoteDelta - downvoteDelta);
+        }
         
-        // Update user karma
-        User postAuthor = post.getUser();
-        updateUserKarma(postAuthor);
+        // Re-read after the bulk update cleared the context; author and community are part of the response
+        return postRepository.findWithAuthorAndCommunityById(postId)
+                .orElseThrow(() -> new RuntimeException("Post not found"));
     }
     
-    private void updateCommentScore(Comment comment) {
-        // Count votes directly from repository to avoid lazy loading issues
-        long upvotes = commentVoteRepository.countByCommentIdAndVoteType(comment.getId(), CommentVote.VoteType.UPVOTE);
-        long downvotes = commentVoteRepository.countByCommentIdAndVoteType(comment.getId(), CommentVote.VoteType.DOWNVOTE);
+    private Comment applyCommentVoteDelta(Long commentId, CommentVote.VoteType before, CommentVote.VoteType after) {
+        int upvoteDelta = delta(before == CommentVote.VoteType.UPVOTE, after == CommentVote.VoteType.UPVOTE);
+        int downvoteDelta = delta(before == CommentVote.VoteType.DOWNVOTE, after == CommentVote.VoteType.DOWNVOTE);
         
-        comment.setUpvotes((int) upvotes);
-        comment.setDownvotes((int) downvotes);
-        comment.setScore((int) (upvotes - downvotes));
-        commentRepository.save(comment);
+        if (writeBehindEnabled) {
+            voteAggregationBuffer.recordCommentVote(commentId, upvoteDelta, downvoteDelta);
+        } else if (upvoteDelta != 0 || downvoteDelta != 0) {
+            commentRepository.applyVoteDelta(commentId, upvoteDelta, downvoteDelta);
+            commentRepository.refreshRankingKeys(commentId);
+            userRepository.adjustKarmaForCommentAuthor(commentId, upvoteDelta - downvoteDelta);
+        }
         
-        // Update user karma
-        User commentAuthor = comment.getUser();
-        updateUserKarma(commentAuthor);
+        Comment updated = commentRepository.findWithAuthorById(commentId)
+                .orElseThrow(() -> new RuntimeException("Comment not found"));
+        commentTreeCache.invalidatePost(updated.getPost().getId());
+        return updated;
+    }
+    
+    private static int delta(boolean countedBefore, boolean countedAfter) {
+        return (countedAfter ? 1 : 0) - (countedBefore ? 1 : 0);
     }
     
     @Transactional
     public Post removePostVote(Long userId, Long postId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        Post post = postRepository.findById(postId)
+        Post post = postRepository.findWithAuthorAndCommunityById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
         
         Optional<PostVote> existingVote = postVoteRepository.findByUserIdAndPostId(userId, postId);
         if (existingVote.isPresent()) {
             postVoteRepository.delete(existingVote.get());
-            updatePostScore(post);
+            return applyPostVoteDelta(postId, existingVote.get().getVoteType(), null);
         }
         
         return post;
@@ -150,13 +177,13 @@ public class VotingService {
     public Comment removeCommentVote(Long userId, Long commentId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        Comment comment = commentRepository.findById(commentId)
+        Comment comment = commentRepository.findWithAuthorById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
         
         Optional<CommentVote> existingVote = commentVoteRepository.findByUserIdAndCommentId(userId, commentId);
         if (existingVote.isPresent()) {
             commentVoteRepository.delete(existingVote.get());
-            updateCommentScore(comment);
+            return applyCommentVoteDelta(commentId, existingVote.get().getVoteType(), null);
         }
         
         return comment;
@@ -172,30 +199,67 @@ public class VotingService {
         return vote.map(v -> v.getVoteType().toString()).orElse(null);
     }
     
-    private void updateUserKarma(User user) {
-        int postKarma = user.getPosts().stream()
-                .mapToInt(Post::getScore)
-                .sum();
-        int commentKarma = user.getComments().stream()
-                .mapToInt(Comment::getScore)
-                .sum();
-        
-        user.setKarma(postKarma + commentKarma);
-        userRepository.save(user);
+    public Map<Long, String> getUserPostVotes(Long userId, Collection<Long> postIds) {
+        Map<Long, String> votes = new HashMap<>();
+        if (userId == null || postIds == null || postIds.isEmpty()) {
+            return votes;
+        }
+        for (Object[] row : postVoteRepository.findVoteTypesByUserIdAndPostIds(userId, postIds)) {
+            votes.put((Long) row[0], row[1].toString());
+        }
+        return votes;
     }
     
-    @Transactional
-    public void refreshAllVoteCounts() {
-        // Refresh all post vote counts
-        List<Post> allPosts = postRepository.findAll();
-        for (Post post : allPosts) {
-            updatePostScore(post);
+    public Map<Long, String> getUserCommentVotes(Long userId, Collection<Long> commentIds) {
+        Map<Long, String> votes = new HashMap<>();
+        if (userId == null || commentIds == null || commentIds.isEmpty()) {
+            return votes;
         }
-        
-        // Refresh all comment vote counts
-        List<Comment> allComments = commentRepository.findAll();
-        for (Comment comment : allComments) {
-            updateCommentScore(comment);
+        for (Object[] row : commentVoteRepository.findVoteTypesByUserIdAndCommentIds(userId, commentIds)) {
+            votes.put((Long) row[0], row[1].toString());
+        }
+        return votes;
+    }
+    
+    // Fills myVote for a whole listing with one query
+    public void attachPostVotes(Collection<PostSummaryDTO> posts, Long userId) {
+        if (userId == null || posts.isEmpty()) {
+            return;
+        }
+        Map<Long, String> votes = getUserPostVotes(userId, posts.stream().map(PostSummaryDTO::getId).toList());
+        posts.forEach(post -> post.setMyVote(votes.get(post.getId())));
+    }
+    
+    // Fills myVote across a comment tree (replies included) with one query
+    public void attachCommentVotes(Collection<CommentTreeDTO> comments, Long userId) {
+        if (userId == null || comments.isEmpty()) {
+            return;
+        }
+        Map<Long, CommentTreeDTO> byId = new HashMap<>();
+        collectComments(comments, byId);
+        Map<Long, String> votes = getUserCommentVotes(userId, byId.keySet());
+        byId.forEach((id, comment) -> comment.setMyVote(votes.get(id)));
+    }
+    
+    private void collectComments(Collection<CommentTreeDTO> comments, Map<Long, CommentTreeDTO> byId) {
+        for (CommentTreeDTO comment : comments) {
+            byId.put(comment.getId(), comment);
+            collectComments(comment.getReplies(), byId);
+        }
+    }
+    
+    // Offline repair for the running karma totals: one set-based UPDATE per id range,
+    // each in its own transaction so no single statement holds locks for long
+    public int recomputeAllKarma() {
+        long maxId = userRepository.findMaxId();
+        int updated = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += KARMA_CHUNK_SIZE) {
+            long chunkStart = fromId;
+            // Buffered deltas move a score and its author's karma in the same flush, so karma summed from
+            // the scores stays consistent as long as no flush lands in the middle of the statement
+            updated += voteAggregationBuffer.holdingFlush(
+                    () -> userRepository.recomputeKarma(chunkStart, chunkStart + KARMA_CHUNK_SIZE - 1));
         }
+        return updated;
     }
 }
\ No newline at end of file
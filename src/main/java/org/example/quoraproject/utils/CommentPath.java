@@ -0,0 +1,23 @@
+package org.example.quoraproject.utils;
+
+// Materialized path for comments: one fixed-width base-36 segment per ancestor, e.g. "0000002s/0000009x/".
+// Fixed width keeps lexical order equal to id order, and a subtree is every path starting with its root's path.
+public final class CommentPath {
+
+    public static final int MAX_LENGTH = 760;
+    private static final int SEGMENT_WIDTH = 8;
+    public static final int MAX_DEPTH = MAX_LENGTH / (SEGMENT_WIDTH + 1) - 1;
+
+    private CommentPath() {
+    }
+
+    public static String of(String parentPath, long commentId) {
+        String segment = Long.toString(commentId, 36);
+        return (parentPath != null ? parentPath : "") + "0".repeat(SEGMENT_WIDTH - segment.length()) + segment + "/";
+    }
+
+    // LIKE pattern matching a comment and all of its descendants
+    public static String subtreePattern(String path) {
+        return path + "%";
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.quoraproject.utils;
+
+// Precomputed comment ranking keys, derived from the vote counters in SQL so every writer
+// (direct votes, the write-behind buffer, reconciliation) refreshes them the same way.
+// best: lower bound of the Wilson score interval for the upvote ratio at 95% confidence (z = 1.96),
+// so 10 up / 1 down outranks 1 up / 0 down. controversial: many votes, evenly split.
+public final class CommentRanking {
+
+    public static final String BEST_SQL =
+            "CASE WHEN upvotes + downvotes = 0 THEN 0 ELSE " +
+            "((upvotes + 1.9208) / (upvotes + downvotes) " +
+            "- 1.96 * SQRT(1.0 * upvotes * downvotes / (upvotes + downvotes) + 0.9604) / (upvotes + downvotes)) " +
+            "/ (1 + 3.8416 / (upvotes + downvotes)) END";
+
+    public static final String CONTROVERSY_SQL =
+            "CASE WHEN upvotes = 0 OR downvotes = 0 THEN 0 ELSE POWER(upvotes + downvotes, " +
+            "CASE WHEN upvotes > downvotes THEN 1.0 * downvotes / upvotes ELSE 1.0 * upvotes / downvotes END) END";
+
+    // Append a WHERE clause to pick the rows
+    public static final String REFRESH_SQL =
+            "UPDATE comments SET best_score = " + BEST_SQL + ", controversy = " + CONTROVERSY_SQL;
+
+    private CommentRanking() {
+    }
+}
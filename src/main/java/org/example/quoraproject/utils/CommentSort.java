@@ -0,0 +1,48 @@
+package org.example.quoraproject.utils;
+
+import org.springframework.data.domain.Sort;
+
+public enum CommentSort {
+    BEST("bestScore", "best_score"), TOP("score", "score"), NEW("id", "id"), CONTROVERSIAL("controversy", "controversy");
+
+    private final String property;
+    private final String column;
+
+    CommentSort(String property, String column) {
+        this.property = property;
+        this.column = column;
+    }
+
+    // The ranking key's column in native queries; it is the third column of the matching
+    // (post_id, parent_comment_id, key, id) index
+    public String column() {
+        return column;
+    }
+
+    // best and controversial are doubles, score and id are whole numbers
+    public boolean fractional() {
+        return this == BEST || this == CONTROVERSIAL;
+    }
+
+    public Number parseKey(String value) {
+        return fractional() ? Double.valueOf(value) : Long.valueOf(value);
+    }
+
+    public static CommentSort from(String value) {
+        if (value == null || value.isBlank()) {
+            return BEST;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Sort must be one of best, top, new, controversial");
+        }
+    }
+
+    // Highest key first, newest comment first on ties: both columns descending, so the ascending
+    // (post_id, parent_comment_id, key, id) index is read backwards instead of sorted. Reply queries
+    // and continuation tokens use the same order.
+    public Sort toSort() {
+        return this == NEW ? Sort.by(Sort.Direction.DESC, "id") : Sort.by(Sort.Direction.DESC, property, "id");
+    }
+}
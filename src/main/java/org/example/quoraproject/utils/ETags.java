@@ -0,0 +1,31 @@
+package org.example.quoraproject.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Entity tags for conditional GETs, spelled out from the version values a response is built from
+// (timestamps, counters) so equal tags mean equal inputs without hashing the body
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String strong(Object... parts) {
+        StringBuilder tag = new StringBuilder("\"");
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                tag.append('-');
+            }
+            tag.append(parts[i] instanceof LocalDateTime time ? encode(time) : String.valueOf(parts[i]));
+        }
+        return tag.append('"').toString();
+    }
+
+    public static String weak(Object... parts) {
+        return "W/" + strong(parts);
+    }
+
+    private static String encode(LocalDateTime time) {
+        return Long.toString(time.toEpochSecond(ZoneOffset.UTC), 36) + "." + Integer.toString(time.getNano(), 36);
+    }
+}
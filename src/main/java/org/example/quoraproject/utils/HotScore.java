@@ -0,0 +1,26 @@
+package org.example.quoraproject.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Reddit-style hot ranking: log10 of the score plus a term that grows by 1 every 12.5 hours,
+// so a post needs 10x the votes to hold its place against one 12.5 hours younger
+public final class HotScore {
+
+    private static final long EPOCH_SECONDS = 1134028003L;
+    private static final double DECAY_SECONDS = 45000d;
+
+    private HotScore() {
+    }
+
+    // Time component, fixed for the life of a post (stored as Post.hotBase)
+    public static double ageTerm(LocalDateTime createdAt) {
+        long seconds = createdAt.atZone(ZoneId.systemDefault()).toEpochSecond();
+        return (seconds - EPOCH_SECONDS) / DECAY_SECONDS;
+    }
+
+    // Must match the SQL used in PostRepository.applyVoteDelta and VoteAggregationBuffer
+    public static double of(int score, double ageTerm) {
+        return Math.signum(score) * Math.log10(Math.max(Math.abs(score), 1)) + ageTerm;
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.quoraproject.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index with Okapi BM25 scoring. Each term maps to its postings (document id to
+ * term frequency); per-document term counts are kept so a document can be replaced or removed
+ * without scanning the whole index. Readers share a lock, writers take it exclusively.
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "of", "on", "or", "the", "this", "that", "to", "was", "with");
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    private long totalLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public record Hit(long id, double score) {
+    }
+
+    // Top hits by BM25 plus the number of documents matching any query term
+    public record Result(List<Hit> hits, int total) {
+    }
+
+    // Lowercased, accent-folded runs of letters and digits, minus stop words
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Adds or replaces a document. Fields are concatenated; repeat a field to weight it higher.
+    public void put(long id, String... fields) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String field : fields) {
+            for (String token : tokenize(field)) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (frequencies.isEmpty()) {
+                return;
+            }
+            documents.put(id, frequencies);
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>()).put(id, entry.getValue());
+                length += entry.getValue();
+            }
+            lengths.put(id, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return documents.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Result search(String query, int limit) {
+        List<String> terms = tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty() || limit <= 0) {
+            return new Result(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            double averageLength = documentCount > 0 ? (double) totalLength / documentCount : 0;
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                int documentFrequency = termPostings.size();
+                double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                termPostings.forEach((id, frequency) -> {
+                    int length = lengths.get(id);
+                    double norm = frequency + K1 * (1 - B + B * length / averageLength);
+                    scores.merge(id, idf * frequency * (K1 + 1) / norm, Double::sum);
+                });
+            }
+
+            // Bounded min-heap keeps only the best `limit` hits
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+            scores.forEach((id, score) -> {
+                if (top.size() < limit) {
+                    top.add(new Hit(id, score));
+                } else if (score > top.peek().score()) {
+                    top.poll();
+                    top.add(new Hit(id, score));
+                }
+            });
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+            return new Result(hits, scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        Map<String, Integer> frequencies = documents.remove(id);
+        if (frequencies == null) {
+            return;
+        }
+        for (String term : frequencies.keySet()) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(id);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= lengths.remove(id);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.quoraproject.utils;
+
+import org.example.quoraproject.dtos.PostSummaryDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Opaque keyset cursor: the (sort key, id) of the last post on the previous page.
+// A null token means "start from the top", expressed as a key greater than any real row.
+public final class PostCursor {
+
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final PostSort sort;
+    private final String key;
+    private final long id;
+
+    private PostCursor(PostSort sort, String key, long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static PostCursor decode(String token, PostSort sort) {
+        if (token == null || token.isBlank()) {
+            return first(sort);
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length != 3 || PostSort.valueOf(parts[0]) != sort) {
+                throw new IllegalArgumentException("Cursor does not match sort " + sort.name().toLowerCase());
+            }
+            PostCursor cursor = new PostCursor(sort, parts[1], Long.parseLong(parts[2]));
+            cursor.validateKey();
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // A page needs at least one row to take the next cursor from
+    public static int checkSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return size;
+    }
+
+    public static String encode(PostSort sort, PostSummaryDTO last) {
+        String key = switch (sort) {
+            case HOT -> Double.toString(last.getHotScore());
+            case TOP -> Integer.toString(last.getScore());
+            case NEW -> last.getCreatedAt().toString();
+        };
+        String raw = sort.name() + "|" + key + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PostCursor first(PostSort sort) {
+        String key = switch (sort) {
+            case HOT -> Double.toString(Double.MAX_VALUE);
+            case TOP -> Integer.toString(Integer.MAX_VALUE);
+            case NEW -> MAX_CREATED_AT.toString();
+        };
+        return new PostCursor(sort, key, Long.MAX_VALUE);
+    }
+
+    private void validateKey() {
+        switch (sort) {
+            case HOT -> getHotScore();
+            case TOP -> getScore();
+            case NEW -> getCreatedAt();
+        }
+    }
+
+    public PostSort getSort() {
+        return sort;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public double getHotScore() {
+        return Double.parseDouble(key);
+    }
+
+    public int getScore() {
+        return Integer.parseInt(key);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return LocalDateTime.parse(key);
+    }
+}
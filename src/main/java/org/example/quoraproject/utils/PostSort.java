@@ -0,0 +1,16 @@
+package org.example.quoraproject.utils;
+
+public enum PostSort {
+    HOT, NEW, TOP;
+
+    public static PostSort from(String value) {
+        if (value == null || value.isBlank()) {
+            return NEW;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Sort must be one of hot, new, top");
+        }
+    }
+}
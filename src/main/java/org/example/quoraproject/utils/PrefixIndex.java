@@ -0,0 +1,182 @@
+package org.example.quoraproject.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trie for prefix autocomplete. Every node keeps its best suggestions by weight, so a lookup
+ * walks the prefix and returns that list without visiting the subtree. A node's list is merged from its
+ * own entries and its children's lists, so writes rebuild only the nodes along the changed keys, deepest
+ * first. Readers share a lock, writers take it exclusively.
+ */
+public class PrefixIndex<T> {
+
+    private static final Comparator<Entry<?>> BY_WEIGHT =
+            Comparator.comparingLong((Entry<?> entry) -> entry.weight).reversed()
+                    .thenComparingLong(entry -> entry.id);
+
+    private final int suggestionsPerNode;
+    private final Node<T> root = new Node<>();
+    private final Map<Long, Entry<T>> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private static final class Entry<T> {
+        final long id;
+        final T value;
+        final long weight;
+        final Set<String> keys;
+
+        Entry(long id, T value, long weight, Set<String> keys) {
+            this.id = id;
+            this.value = value;
+            this.weight = weight;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Node<T> {
+        final Map<Character, Node<T>> children = new HashMap<>();
+        final List<Entry<T>> terminals = new ArrayList<>();
+        List<Entry<T>> top = List.of();
+    }
+
+    public PrefixIndex(int suggestionsPerNode) {
+        this.suggestionsPerNode = suggestionsPerNode;
+    }
+
+    // Lowercased and accent-folded, so "Café" completes from "caf"
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    // Adds or replaces an entry under each of its keys; also the way to change its weight
+    public void put(long id, T value, long weight, Collection<String> keys) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String key : keys) {
+            String folded = normalize(key);
+            if (!folded.isEmpty()) {
+                normalized.add(folded);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<String> changed = new HashSet<>(normalized);
+            Entry<T> previous = entries.remove(id);
+            if (previous != null) {
+                for (String key : previous.keys) {
+                    node(key, false).terminals.remove(previous);
+                }
+                changed.addAll(previous.keys);
+            }
+            if (!normalized.isEmpty()) {
+                Entry<T> entry = new Entry<>(id, value, weight, normalized);
+                entries.put(id, entry);
+                for (String key : normalized) {
+                    node(key, true).terminals.add(entry);
+                }
+            }
+            changed.forEach(this::refreshPath);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry<T> previous = entries.remove(id);
+            if (previous != null) {
+                for (String key : previous.keys) {
+                    node(key, false).terminals.remove(previous);
+                    refreshPath(key);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Values whose keys start with the prefix, highest weight first; an empty prefix matches nothing
+    public List<T> complete(String prefix, int limit) {
+        String folded = normalize(prefix);
+        if (folded.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node<T> node = root;
+            for (int i = 0; i < folded.length() && node != null; i++) {
+                node = node.children.get(folded.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            return node.top.stream().limit(limit).map(entry -> entry.value).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Node<T> node(String key, boolean create) {
+        Node<T> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            node = create ? node.children.computeIfAbsent(c, k -> new Node<>()) : node.children.get(c);
+        }
+        return node;
+    }
+
+    // Recomputes the suggestion lists from the key's node up to the root, pruning nodes left empty
+    private void refreshPath(String key) {
+        List<Node<T>> path = new ArrayList<>(key.length() + 1);
+        Node<T> node = root;
+        path.add(node);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+            if (node != null) {
+                path.add(node);
+            }
+        }
+
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            Node<T> current = path.get(depth);
+            List<Entry<T>> candidates = new ArrayList<>(current.terminals);
+            current.children.values().forEach(child -> candidates.addAll(child.top));
+            current.top = candidates.stream()
+                    .distinct()
+                    .sorted(BY_WEIGHT)
+                    .limit(suggestionsPerNode)
+                    .toList();
+            if (depth > 0 && current.top.isEmpty() && current.children.isEmpty()) {
+                path.get(depth - 1).children.remove(key.charAt(depth - 1));
+            }
+        }
+    }
+}
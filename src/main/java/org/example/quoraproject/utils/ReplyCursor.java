@@ -0,0 +1,36 @@
+package org.example.quoraproject.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque "load more" token for a truncated branch: the sort, the post and parent comment, and the ranking
+// key and id of the last reply already shown in that order. Both are null when none were shown
+// ("continue this thread"). A keyset position rather than an offset, so resuming deep into a large
+// branch still reads only the replies it returns.
+public record ReplyCursor(CommentSort sort, long postId, long parentId, Number afterKey, Long afterId) {
+
+    public static String start(CommentSort sort, long postId, long parentId) {
+        return encode(sort, postId, parentId, null, null);
+    }
+
+    public static String encode(CommentSort sort, long postId, long parentId, Number afterKey, Long afterId) {
+        String raw = sort.name() + "|" + postId + "|" + parentId + "|"
+                + (afterKey != null ? afterKey : "") + "|" + (afterId != null ? afterId : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ReplyCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 5 || parts[3].isEmpty() != parts[4].isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+            CommentSort sort = CommentSort.valueOf(parts[0]);
+            Number afterKey = parts[3].isEmpty() ? null : sort.parseKey(parts[3]);
+            Long afterId = parts[4].isEmpty() ? null : Long.valueOf(parts[4]);
+            return new ReplyCursor(sort, Long.parseLong(parts[1]), Long.parseLong(parts[2]), afterKey, afterId);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+    }
+}
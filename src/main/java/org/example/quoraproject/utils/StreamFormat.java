@@ -0,0 +1,30 @@
+package org.example.quoraproject.utils;
+
+import org.springframework.http.MediaType;
+
+// Wire format of streamed listings: one JSON array, or one JSON object per line
+public enum StreamFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"));
+
+    private final MediaType mediaType;
+
+    StreamFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public static StreamFormat from(String value) {
+        if (value == null || value.isBlank()) {
+            return JSON;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Format must be one of json, ndjson");
+        }
+    }
+}
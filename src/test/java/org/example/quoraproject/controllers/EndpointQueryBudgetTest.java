@@ -0,0 +1,161 @@
+package org.example.quoraproject.controllers;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.quoraproject.models.Comment;
+import org.example.quoraproject.models.Community;
+import org.example.quoraproject.models.Post;
+import org.example.quoraproject.models.User;
+import org.example.quoraproject.repositories.CommentRepository;
+import org.example.quoraproject.repositories.CommunityRepository;
+import org.example.quoraproject.repositories.PostRepository;
+import org.example.quoraproject.repositories.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Fails when an endpoint issues more statements than its fetch plan allows, e.g. a lazy
+// association resolved per row during serialization. Budgets do not depend on the page size.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EndpointQueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Community community;
+    private Post post;
+    private Comment comment;
+
+    @BeforeAll
+    void seed() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setUsername("budget-user-" + i);
+            user.setPassword("password");
+            users.add(userRepository.save(user));
+        }
+
+        List<Community> communities = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Community created = new Community();
+            created.setName("budget-" + i);
+            created.setDisplayName("r/budget-" + i);
+            created.setCreator(users.get(i));
+            communities.add(communityRepository.save(created));
+        }
+        community = communities.get(0);
+
+        // Authors and communities vary so a per-row lazy load would show up as extra statements
+        for (int i = 0; i < 25; i++) {
+            Post created = new Post();
+            created.setTitle("Budget post " + i);
+            created.setUser(users.get(i % users.size()));
+            created.setCommunity(communities.get(i % communities.size()));
+            post = postRepository.save(created);
+        }
+
+        comment = saveComment(users.get(0), null);
+        for (int i = 1; i <= 3; i++) {
+            saveComment(users.get(i), comment);
+        }
+    }
+
+    @Test
+    void postListingsStayWithinBudget() throws Exception {
+        assertWithinBudget(2, "/api/v1/posts?size=25");
+        assertWithinBudget(2, "/api/v1/posts/community/" + community.getId() + "?size=25&sort=hot");
+        assertWithinBudget(1, "/api/v1/posts/cursor?size=25");
+    }
+
+    // Version lookup for the ETag, then the post with author and community in one query
+    @Test
+    void postDetailLoadsAuthorAndCommunityInOneQuery() throws Exception {
+        assertWithinBudget(2, "/api/v1/posts/" + post.getId());
+    }
+
+    @Test
+    void unchangedResourcesAreAnsweredFromTheValidatorAlone() throws Exception {
+        assertNotModifiedInOneStatement("/api/v1/posts/" + post.getId());
+        assertNotModifiedInOneStatement("/api/v1/communities/" + community.getId());
+        assertNotModifiedInOneStatement("/api/v1/comments/post/" + post.getId() + "?page=0&size=10");
+    }
+
+    @Test
+    void commentEndpointsStayWithinBudget() throws Exception {
+        assertWithinBudget(1, "/api/v1/comments/" + comment.getId());
+        assertWithinBudget(2, "/api/v1/comments/" + comment.getId() + "/replies?page=0&size=10");
+    }
+
+    @Test
+    void communityEndpointsStayWithinBudget() throws Exception {
+        assertWithinBudget(2, "/api/v1/communities?size=20");
+        assertWithinBudget(2, "/api/v1/communities/" + community.getId());
+    }
+
+    private void assertWithinBudget(int budget, String url) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= budget, "GET " + url + " issued " + statements + " statements, budget is " + budget);
+    }
+
+    private void assertNotModifiedInOneStatement(String url) throws Exception {
+        String eTag = mockMvc.perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag, "GET " + url + " sent no ETag");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+
+        assertEquals(1, statistics.getPrepareStatementCount(), "conditional GET " + url);
+    }
+
+    private Comment saveComment(User user, Comment parent) {
+        Comment created = new Comment();
+        created.setContent("comment");
+        created.setUser(user);
+        created.setPost(post);
+        created.setParentComment(parent);
+        return commentRepository.save(created);
+    }
+}
@@ -0,0 +1,200 @@
+package org.example.quoraproject.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.quoraproject.dtos.CommentTreeDTO;
+import org.example.quoraproject.dtos.CursorPage;
+import org.example.quoraproject.models.Comment;
+import org.example.quoraproject.models.Community;
+import org.example.quoraproject.models.Post;
+import org.example.quoraproject.models.User;
+import org.example.quoraproject.repositories.CommentRepository;
+import org.example.quoraproject.repositories.CommunityRepository;
+import org.example.quoraproject.repositories.PostRepository;
+import org.example.quoraproject.repositories.UserRepository;
+import org.example.quoraproject.utils.CommentSort;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CommentServiceQueryCountTest {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private static final int REPLY_LEVELS = 4;
+
+    private Post post;
+    private int created;
+
+    @Test
+    void commentTreeLoadsWithOneQueryPerLevelRegardlessOfSize() {
+        createThread("threads");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<CommentTreeDTO> tree = commentService.getCommentsByPostId(post.getId(), CommentSort.BEST, 0, 10, REPLY_LEVELS, 10);
+
+        // Top-level page, then one query per reply level; replies report whether they have replies themselves
+        assertEquals(1 + REPLY_LEVELS, statistics.getPrepareStatementCount());
+        assertEquals(5, tree.size());
+        assertEquals(created, countNodes(tree));
+    }
+
+    @Test
+    void truncatedBranchesResumeFromTheirToken() {
+        createThread("truncated");
+
+        List<CommentTreeDTO> tree = commentService.getCommentsByPostId(post.getId(), CommentSort.BEST, 0, 10, 0, 2);
+        CommentTreeDTO first = tree.get(0);
+        assertEquals(0, first.getReplies().size());
+        assertNotNull(first.getMoreRepliesToken());
+
+        CursorPage<CommentTreeDTO> replies = commentService.getMoreReplies(first.getMoreRepliesToken(), 0, 2);
+        assertEquals(2, replies.getContent().size());
+        assertTrue(replies.isHasNext());
+
+        CursorPage<CommentTreeDTO> rest = commentService.getMoreReplies(replies.getNextCursor(), 0, 2);
+        assertEquals(1, rest.getContent().size());
+        assertFalse(rest.isHasNext());
+        // Equal keys: newest first, so the rest page continues below the last id shown
+        assertTrue(rest.getContent().get(0).getId() < replies.getContent().get(1).getId());
+    }
+
+    @Test
+    void wideBranchesCostOneQueryPerLevelAtAnyPosition() {
+        createThread("wide");
+        Comment parent = commentRepository.findByPostIdAndParentCommentIsNull(post.getId(), Pageable.unpaged())
+                .getContent().get(0);
+        for (int i = 0; i < 200; i++) {
+            saveComment(parent.getUser(), post, parent);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CommentTreeDTO thread = commentService.getCommentThread(parent.getId(), CommentSort.NEW, 1, 2).orElseThrow();
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(2, thread.getReplies().size());
+
+        // Deep into the branch, a page still reads only the replies it returns
+        String token = thread.getMoreRepliesToken();
+        for (int page = 0; page < 50; page++) {
+            token = commentService.getMoreReplies(token, 0, 2).getNextCursor();
+        }
+        statistics.clear();
+        CursorPage<CommentTreeDTO> deep = commentService.getMoreReplies(token, 0, 2);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(2, deep.getContent().size());
+    }
+
+    @Test
+    @Transactional
+    void sortsUsePrecomputedRankingKeys() {
+        createThread("ranked");
+        List<Comment> topLevel = commentRepository.findByPostIdAndParentCommentIsNull(post.getId(), Pageable.unpaged())
+                .getContent();
+        Comment fewVotes = setVotes(topLevel.get(0), 1, 0);
+        Comment manyVotes = setVotes(topLevel.get(1), 10, 1);
+        Comment split = setVotes(topLevel.get(2), 5, 5);
+
+        List<Long> best = commentService.getCommentsByPostId(post.getId(), CommentSort.BEST, 0, 3, 0, 1)
+                .stream().map(CommentTreeDTO::getId).toList();
+        assertEquals(List.of(manyVotes.getId(), split.getId(), fewVotes.getId()), best);
+
+        List<CommentTreeDTO> controversial = commentService.getCommentsByPostId(post.getId(), CommentSort.CONTROVERSIAL,
+                0, 1, 0, 1);
+        assertEquals(split.getId(), controversial.get(0).getId());
+    }
+
+    // 5 top-level comments, each with a reply chain REPLY_LEVELS deep and 3 siblings per level
+    private void createThread(String communityName) {
+        User user = new User();
+        user.setUsername(communityName + "-author");
+        user.setPassword("password");
+        user = userRepository.save(user);
+
+        Community community = new Community();
+        community.setName(communityName);
+        community.setDisplayName("r/" + communityName);
+        community = communityRepository.save(community);
+
+        post = new Post();
+        post.setTitle("Big thread");
+        post.setUser(user);
+        post.setCommunity(community);
+        post = postRepository.save(post);
+
+        created = 0;
+        List<Comment> level = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            level.add(saveComment(user, post, null));
+            created++;
+        }
+        for (int depth = 0; depth < REPLY_LEVELS; depth++) {
+            List<Comment> next = new ArrayList<>();
+            for (Comment parent : level) {
+                for (int i = 0; i < 3; i++) {
+                    next.add(saveComment(user, post, parent));
+                    created++;
+                }
+            }
+            level = next.subList(0, 5);
+        }
+    }
+
+    private Comment saveComment(User user, Post post, Comment parent) {
+        Comment comment = new Comment();
+        comment.setContent("comment");
+        comment.setUser(user);
+        comment.setPost(post);
+        comment.setParentComment(parent);
+        return commentRepository.save(comment);
+    }
+
+    private Comment setVotes(Comment comment, int upvotes, int downvotes) {
+        comment.setUpvotes(upvotes);
+        comment.setDownvotes(downvotes);
+        comment.setScore(upvotes - downvotes);
+        commentRepository.saveAndFlush(comment);
+        commentRepository.refreshRankingKeys(comment.getId());
+        return comment;
+    }
+
+    private int countNodes(List<CommentTreeDTO> comments) {
+        int count = 0;
+        for (CommentTreeDTO comment : comments) {
+            count += 1 + countNodes(comment.getReplies());
+        }
+        return count;
+    }
+}
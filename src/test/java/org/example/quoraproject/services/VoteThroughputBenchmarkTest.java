@@ -0,0 +1,113 @@
+package org.example.quoraproject.services;
+
+import org.example.quoraproject.dtos.VoteDTO;
+import org.example.quoraproject.models.Community;
+import org.example.quoraproject.models.Post;
+import org.example.quoraproject.models.User;
+import org.example.quoraproject.repositories.CommunityRepository;
+import org.example.quoraproject.repositories.PostRepository;
+import org.example.quoraproject.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: ./gradlew test --tests '*VoteThroughputBenchmarkTest' -Dbenchmark=true
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VoteThroughputBenchmarkTest {
+
+    private static final int VOTERS = 2000;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private VotingService votingService;
+
+    @Autowired
+    private VoteAggregationBuffer voteAggregationBuffer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Test
+    void singleHotPostVotesPerSecond() throws Exception {
+        User author = createUser("hot-author");
+        Community community = new Community();
+        community.setName("benchmark");
+        community.setDisplayName("r/benchmark");
+        community.setCreator(author);
+        community = communityRepository.save(community);
+
+        Post post = new Post();
+        post.setTitle("Hot post");
+        post.setUser(author);
+        post.setCommunity(community);
+        post = postRepository.save(post);
+
+        List<Long> voters = new ArrayList<>();
+        for (int i = 0; i < VOTERS * 2; i++) {
+            voters.add(createUser("voter-" + i).getId());
+        }
+
+        double direct = votesPerSecond(post.getId(), voters.subList(0, VOTERS), false);
+        double writeBehind = votesPerSecond(post.getId(), voters.subList(VOTERS, VOTERS * 2), true);
+        voteAggregationBuffer.flush();
+
+        System.out.printf("Hot post votes/sec: direct=%.0f, write-behind=%.0f%n", direct, writeBehind);
+
+        Post result = postRepository.findById(post.getId()).orElseThrow();
+        assertEquals(VOTERS * 2, result.getUpvotes());
+        assertEquals(VOTERS * 2, result.getScore());
+        assertEquals(VOTERS * 2, userRepository.findById(author.getId()).orElseThrow().getKarma());
+    }
+
+    private double votesPerSecond(Long postId, List<Long> voterIds, boolean writeBehind) throws Exception {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(votingService), "writeBehindEnabled", writeBehind);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> votes = new ArrayList<>();
+            for (Long voterId : voterIds) {
+                votes.add(pool.submit(() -> {
+                    VoteDTO vote = new VoteDTO();
+                    vote.setUserId(voterId);
+                    vote.setPostId(postId);
+                    vote.setVoteType("UPVOTE");
+                    votingService.voteOnPost(vote);
+                }));
+            }
+            for (Future<?> vote : votes) {
+                vote.get();
+            }
+            return voterIds.size() / ((System.nanoTime() - start) / 1_000_000_000.0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+}